@@ -0,0 +1,99 @@
+#!/bin/bash
+
+# PDF Text Extractor - AppCDS Archive Script
+# This script records the classes a CLI run loads (PDFBox, Tess4J, JNA and
+# the JDK classes they use) into a class-data sharing archive. Later runs map
+# the archive instead of loading and verifying those classes again, which
+# shortens the startup of every short CLI run. Needs Java 13 or newer.
+# Run it again after updating the jars in lib/.
+
+set -e  # Exit on any error
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+CDS_ARCHIVE="pdftotext-cli.jsa"
+CORPUS_CLASSES="benchmarks/classes"
+
+# Function to print colored output
+print_status() {
+    echo -e "${BLUE}[INFO]${NC} $1"
+}
+
+print_success() {
+    echo -e "${GREEN}[SUCCESS]${NC} $1"
+}
+
+print_warning() {
+    echo -e "${YELLOW}[WARNING]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+# Prints the major Java version, such as 8 or 17
+java_major_version() {
+    local version
+    version=$(java -version 2>&1 | head -1 | sed -E 's/.*version "([^"]+)".*/\1/')
+    case "$version" in
+        1.*) echo "$version" | cut -d. -f2 ;;
+        *) echo "$version" | cut -d. -f1 | cut -d- -f1 ;;
+    esac
+}
+
+# Check if dependencies exist
+check_dependencies() {
+    if [ ! -d "lib" ] || [ ! -f "lib/pdfbox-2.0.29.jar" ]; then
+        print_error "Dependencies not found. Please run ./compile_and_run.sh first to download dependencies."
+        exit 1
+    fi
+    if [ ! -f "PDFTextExtractorCLI.class" ]; then
+        print_error "CLI version not compiled. Please run ./compile_and_run.sh first."
+        exit 1
+    fi
+}
+
+check_java_version() {
+    local major
+    major=$(java_major_version)
+    if [ "$major" -lt 13 ]; then
+        print_warning "Java $major cannot create dynamic class-data archives (Java 13 or newer needed); skipping"
+        exit 0
+    fi
+}
+
+# A text PDF and a scanned PDF, so both the text layer and the OCR classes are recorded
+generate_training_pdfs() {
+    print_status "Preparing training PDFs..."
+    mkdir -p "$CORPUS_CLASSES"
+    javac -cp "lib/*:." -d "$CORPUS_CLASSES" BenchmarkCorpus.java
+    java -Djava.awt.headless=true -cp "$CORPUS_CLASSES:lib/*" pdftotext.benchmarks.BenchmarkCorpus small-1 scanned-5
+}
+
+# The classpath must be the one run_cli.sh uses, or the archive is ignored
+build_archive() {
+    local output_dir
+    output_dir=$(mktemp -d)
+    print_status "Recording classes into $CDS_ARCHIVE..."
+    rm -f "$CDS_ARCHIVE"
+    java -XX:ArchiveClassesAtExit="$CDS_ARCHIVE" -Djava.awt.headless=true -cp "lib/*:." \
+        PDFTextExtractorCLI --batch "$output_dir" benchmarks/corpus/small-1.pdf benchmarks/corpus/scanned-5.pdf > /dev/null
+    rm -rf "$output_dir"
+    print_success "Class-data archive created: $CDS_ARCHIVE ($(du -h "$CDS_ARCHIVE" | cut -f1))"
+}
+
+# Main execution
+main() {
+    check_dependencies
+    check_java_version
+    generate_training_pdfs
+    build_archive
+}
+
+# Run main function
+main "$@"
@@ -197,8 +197,12 @@ compile_application() {
     # Create classpath
     CLASSPATH="lib/*:."
     
+    # The shared classes are in the pdftotext package, so they are listed
+    # rather than looked up next to the main classes, and go to ./pdftotext
+    SHARED_SOURCES=$(grep -l '^package pdftotext;' *.java)
+    
     # Compile GUI version
-    javac -cp "$CLASSPATH" PDFTextExtractor.java
+    javac -cp "$CLASSPATH" -d . $SHARED_SOURCES PDFTextExtractor.java
     
     if [ $? -eq 0 ]; then
         print_success "GUI version compilation successful"
@@ -209,7 +213,7 @@ compile_application() {
     
     # Compile CLI version
     print_status "Compiling CLI version..."
-    javac -cp "$CLASSPATH" PDFTextExtractorCLI.java
+    javac -cp "$CLASSPATH" -d . PDFTextExtractorCLI.java
     
     if [ $? -eq 0 ]; then
         print_success "CLI version compilation successful"
@@ -219,6 +223,14 @@ compile_application() {
     fi
 }
 
+# Record the classes a CLI run loads so later runs start faster; optional,
+# as it needs Java 13 or newer
+build_cds_archive() {
+    if [ -f "build_cds_archive.sh" ]; then
+        bash build_cds_archive.sh || print_warning "Class-data archive not created; the CLI still works without it"
+    fi
+}
+
 # Run the application
 run_application() {
     print_status "Choose which version to run:"
@@ -271,6 +283,7 @@ main() {
     download_dependencies
     download_tessdata
     compile_application
+    build_cds_archive
     
     echo ""
     print_success "Build completed successfully!"
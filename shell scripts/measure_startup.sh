@@ -0,0 +1,96 @@
+#!/bin/bash
+
+# PDF Text Extractor - Startup Measurement Script
+# This script measures the time to first byte of the CLI on a one-page text
+# PDF: the time from JVM start until the first page is written out, as the
+# CLI reports it. Each run is repeated with and without the class-data
+# archive from ./build_cds_archive.sh.
+#   ./measure_startup.sh [runs] [pdf_file]
+
+set -e  # Exit on any error
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+CDS_ARCHIVE="pdftotext-cli.jsa"
+CORPUS_CLASSES="benchmarks/classes"
+
+# Function to print colored output
+print_status() {
+    echo -e "${BLUE}[INFO]${NC} $1"
+}
+
+print_success() {
+    echo -e "${GREEN}[SUCCESS]${NC} $1"
+}
+
+print_warning() {
+    echo -e "${YELLOW}[WARNING]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+# Check if dependencies exist
+check_dependencies() {
+    if [ ! -d "lib" ] || [ ! -f "lib/pdfbox-2.0.29.jar" ]; then
+        print_error "Dependencies not found. Please run ./compile_and_run.sh first to download dependencies."
+        exit 1
+    fi
+    if [ ! -f "PDFTextExtractorCLI.class" ]; then
+        print_error "CLI version not compiled. Please run ./compile_and_run.sh first."
+        exit 1
+    fi
+}
+
+prepare_pdf() {
+    if [ ! -f "benchmarks/corpus/small-1.pdf" ]; then
+        print_status "Generating a one-page text PDF..."
+        mkdir -p "$CORPUS_CLASSES"
+        javac -cp "lib/*:." -d "$CORPUS_CLASSES" BenchmarkCorpus.java
+        java -Djava.awt.headless=true -cp "$CORPUS_CLASSES:lib/*" pdftotext.benchmarks.BenchmarkCorpus small-1
+    fi
+}
+
+# Runs the CLI the given number of times and prints each time to first byte
+measure() {
+    local label="$1"
+    local runs="$2"
+    local pdf_file="$3"
+    shift 3
+    local times=()
+    for ((i = 0; i < runs; i++)); do
+        local ttfb
+        ttfb=$(java "$@" -cp "lib/*:." PDFTextExtractorCLI "$pdf_file" 2>&1 >/dev/null \
+               | sed -n 's/^Time to first byte: \([0-9]*\) ms.*/\1/p')
+        times+=("$ttfb")
+    done
+    print_success "$label: ${times[*]} ms"
+}
+
+# Main execution
+main() {
+    local runs="${1:-5}"
+    local pdf_file="${2:-benchmarks/corpus/small-1.pdf}"
+
+    check_dependencies
+    if [ -z "$2" ]; then
+        prepare_pdf
+    fi
+
+    print_status "Time to first byte over $runs runs of $pdf_file"
+    measure "Default" "$runs" "$pdf_file" -Xshare:auto
+    if [ -f "$CDS_ARCHIVE" ]; then
+        measure "With $CDS_ARCHIVE" "$runs" "$pdf_file" -XX:SharedArchiveFile="$CDS_ARCHIVE" -Xshare:auto
+    else
+        print_warning "No $CDS_ARCHIVE; run ./build_cds_archive.sh to compare with the archive"
+    fi
+}
+
+# Run main function
+main "$@"
@@ -0,0 +1,112 @@
+#!/bin/bash
+
+# PDF Text Extractor - Benchmark Script
+# This script downloads JMH, compiles the benchmarks and runs them.
+# Arguments are passed on to JMH, for example:
+#   ./run_benchmarks.sh TextLayerBenchmark
+#   ./run_benchmarks.sh RenderBenchmark -p dpi=300
+
+set -e  # Exit on any error
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+JMH_VERSION="1.37"
+BENCHMARK_CLASSES="benchmarks/classes"
+
+# Function to print colored output
+print_status() {
+    echo -e "${BLUE}[INFO]${NC} $1"
+}
+
+print_success() {
+    echo -e "${GREEN}[SUCCESS]${NC} $1"
+}
+
+print_warning() {
+    echo -e "${YELLOW}[WARNING]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+# Check if dependencies exist
+check_dependencies() {
+    if [ ! -d "lib" ] || [ ! -f "lib/pdfbox-2.0.29.jar" ]; then
+        print_error "Dependencies not found. Please run ./compile_and_run.sh first to download dependencies."
+        exit 1
+    fi
+}
+
+download_jar() {
+    local file="$1"
+    local url="$2"
+    if [ ! -f "lib/${file}" ]; then
+        print_status "Downloading ${file}..."
+        curl -L -o "lib/${file}" "${url}"
+    fi
+}
+
+# Download JMH and its dependencies
+download_jmh() {
+    print_status "Checking JMH ${JMH_VERSION}..."
+    download_jar "jmh-core-${JMH_VERSION}.jar" \
+        "https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-core/${JMH_VERSION}/jmh-core-${JMH_VERSION}.jar"
+    download_jar "jmh-generator-annprocess-${JMH_VERSION}.jar" \
+        "https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/${JMH_VERSION}/jmh-generator-annprocess-${JMH_VERSION}.jar"
+    download_jar "jopt-simple-5.0.4.jar" \
+        "https://repo1.maven.org/maven2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+    download_jar "commons-math3-3.6.1.jar" \
+        "https://repo1.maven.org/maven2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+    print_success "JMH ready"
+}
+
+# Compile the benchmarks together with the pdftotext classes they call; the
+# JMH annotation processor generates the runners, and only accepts benchmarks
+# in a named package
+compile_benchmarks() {
+    print_status "Compiling benchmarks..."
+    rm -rf "$BENCHMARK_CLASSES"
+    mkdir -p "$BENCHMARK_CLASSES"
+    javac -cp "lib/*" \
+        -processorpath "lib/jmh-generator-annprocess-${JMH_VERSION}.jar:lib/jmh-core-${JMH_VERSION}.jar" \
+        -d "$BENCHMARK_CLASSES" \
+        $(grep -l '^package pdftotext;' *.java) \
+        BenchmarkCorpus.java TextLayerBenchmark.java ParallelStripBenchmark.java RenderBenchmark.java OcrBenchmark.java
+    print_success "Benchmarks compiled"
+}
+
+# Generate the benchmark PDFs once, outside the measured forks
+generate_corpus() {
+    print_status "Preparing benchmark corpus..."
+    java -Djava.awt.headless=true -cp "$BENCHMARK_CLASSES:lib/*" pdftotext.benchmarks.BenchmarkCorpus
+}
+
+# Run JMH with the GC profiler for allocation rates. Both throughput
+# (pages/s) and sampled latency percentiles are reported, and the results
+# are kept as JSON so runs can be compared before a release.
+run_benchmarks() {
+    local results="benchmarks/results-$(date +%Y%m%d-%H%M%S).json"
+    print_status "Running benchmarks..."
+    print_warning "Note: OcrBenchmark needs Tesseract language data (see ./compile_and_run.sh)"
+    java -Djava.awt.headless=true -cp "$BENCHMARK_CLASSES:lib/*" org.openjdk.jmh.Main \
+        -prof gc -rf json -rff "$results" "$@"
+    print_success "Results saved to $results"
+}
+
+# Main execution
+main() {
+    check_dependencies
+    download_jmh
+    compile_benchmarks
+    generate_corpus
+    run_benchmarks "$@"
+}
+
+# Run main function
+main "$@"
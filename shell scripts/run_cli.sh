@@ -49,7 +49,7 @@ check_java() {
 compile_cli() {
     if [ ! -f "PDFTextExtractorCLI.class" ] || [ "PDFTextExtractorCLI.java" -nt "PDFTextExtractorCLI.class" ]; then
         print_status "Compiling CLI version..."
-        javac -cp "lib/*:." PDFTextExtractorCLI.java
+        javac -cp "lib/*:." -d . $(grep -l '^package pdftotext;' *.java) PDFTextExtractorCLI.java
         if [ $? -eq 0 ]; then
             print_success "CLI compilation successful"
         else
@@ -98,8 +98,15 @@ main() {
     # Create classpath
     CLASSPATH="lib/*:."
     
+    # Use the class-data archive from ./build_cds_archive.sh when there is
+    # one; -Xshare:auto falls back to normal class loading if it is stale
+    JAVA_OPTS=()
+    if [ -f "pdftotext-cli.jsa" ]; then
+        JAVA_OPTS+=("-XX:SharedArchiveFile=pdftotext-cli.jsa" "-Xshare:auto")
+    fi
+    
     # Run CLI version
-    java -cp "$CLASSPATH" PDFTextExtractorCLI "$@"
+    java "${JAVA_OPTS[@]}" -cp "$CLASSPATH" PDFTextExtractorCLI "$@"
 }
 
 # Run main function
@@ -0,0 +1,163 @@
+package pdftotext.benchmarks;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+// The PDFs the benchmarks run on. They are generated from fixed seeds instead
+// of being checked in, so every machine benchmarks the same documents:
+//
+//   small-1     one text page
+//   text-10     ten text pages
+//   scanned-5   five pages that are only a 300 DPI image of text
+//   mixed-10    text and scanned pages alternating
+//   text-1000   a thousand text pages
+//
+// Files are created in benchmarks/corpus (or -Dpdftotext.benchmark.corpus=DIR)
+// the first time they are asked for.
+public final class BenchmarkCorpus {
+    
+    public static final String SMALL = "small-1";
+    public static final String TEXT = "text-10";
+    public static final String SCANNED = "scanned-5";
+    public static final String MIXED = "mixed-10";
+    public static final String LARGE = "text-1000";
+    
+    private static final String[] NAMES = { SMALL, TEXT, SCANNED, MIXED, LARGE };
+    private static final String[] WORDS = {
+        "invoice", "amount", "payment", "account", "customer", "delivery", "order", "total",
+        "the", "of", "and", "to", "in", "for", "with", "on", "by", "from", "date", "number",
+        "report", "quarter", "revenue", "balance", "statement", "contract", "agreement", "section"
+    };
+    private static final int LINES_PER_PAGE = 45;
+    private static final int SCAN_DPI = 300;
+    
+    private BenchmarkCorpus() {
+    }
+    
+    public static File directory() {
+        return new File(System.getProperty("pdftotext.benchmark.corpus", "benchmarks/corpus"));
+    }
+    
+    // Returns the corpus file, generating it if it does not exist yet
+    public static synchronized File get(String name) throws IOException {
+        File file = new File(directory(), name + ".pdf");
+        if (!file.exists()) {
+            generate(name, file);
+        }
+        return file;
+    }
+    
+    private static void generate(String name, File file) throws IOException {
+        int dash = name.lastIndexOf('-');
+        String kind = name.substring(0, dash);
+        int pages = Integer.parseInt(name.substring(dash + 1));
+        
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create corpus directory: " + dir);
+        }
+        
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < pages; page++) {
+                boolean scanned = kind.equals("scanned") || (kind.equals("mixed") && page % 2 == 1);
+                List<String> lines = pageLines(name.hashCode() * 31L + page);
+                if (scanned) {
+                    addScannedPage(document, lines);
+                } else {
+                    addTextPage(document, lines);
+                }
+            }
+            // Written under a temporary name so an interrupted run leaves no half file
+            File temp = new File(dir, name + ".pdf.tmp");
+            document.save(temp);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot create " + file);
+            }
+        }
+        System.out.println("Generated benchmark corpus " + file);
+    }
+    
+    private static List<String> pageLines(long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>(LINES_PER_PAGE);
+        for (int i = 0; i < LINES_PER_PAGE; i++) {
+            StringBuilder line = new StringBuilder();
+            while (line.length() < 70) {
+                line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                if (random.nextInt(6) == 0) {
+                    line.append(random.nextInt(100000)).append(' ');
+                }
+            }
+            lines.add(line.toString().trim());
+        }
+        return lines;
+    }
+    
+    private static void addTextPage(PDDocument document, List<String> lines) throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.beginText();
+            content.setFont(PDType1Font.HELVETICA, 11);
+            content.setLeading(15);
+            content.newLineAtOffset(72, 720);
+            for (String line : lines) {
+                content.showText(line);
+                content.newLine();
+            }
+            content.endText();
+        }
+    }
+    
+    // A page with no text layer, like a scanner produces: one gray image of
+    // the text covering the page
+    private static void addScannedPage(PDDocument document, List<String> lines) throws IOException {
+        float scale = SCAN_DPI / 72f;
+        BufferedImage image = new BufferedImage(Math.round(612 * scale), Math.round(792 * scale), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.SERIF, Font.PLAIN, Math.round(11 * scale)));
+            float y = 72 * scale;
+            for (String line : lines) {
+                g.drawString(line, 72 * scale, y);
+                y += 15 * scale;
+            }
+        } finally {
+            g.dispose();
+        }
+        
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDImageXObject scan = LosslessFactory.createFromImage(document, image);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(scan, 0, 0, 612, 792);
+        }
+    }
+    
+    // Generates the named files, or the whole corpus, up front
+    public static void main(String[] args) throws IOException {
+        for (String name : args.length > 0 ? args : NAMES) {
+            get(name);
+        }
+        System.out.println("Benchmark corpus ready in " + directory());
+    }
+}
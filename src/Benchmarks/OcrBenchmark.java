@@ -0,0 +1,96 @@
+package pdftotext.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pdftotext.DocumentLoader;
+import pdftotext.OcrEngine;
+import pdftotext.OcrResultCache;
+import pdftotext.OcrSettings;
+import pdftotext.WarmTesseract;
+
+// OCR of one pre-rendered 300 DPI page per operation on a single thread.
+// warmEnginePage is what the extractor does; tess4jPage is Tess4J's own
+// Tesseract class, which loads the language data again on every call.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OcrBenchmark {
+    
+    private final List<BufferedImage> pages = new ArrayList<>();
+    private OcrSettings settings;
+    private WarmTesseract warmEngine;
+    private Tesseract tess4j;
+    private int nextPage;
+    
+    @Setup
+    public void prepare() throws IOException, TesseractException {
+        String tessdataPath = OcrEngine.findTessdataPath();
+        if (tessdataPath == null) {
+            throw new IllegalStateException("Tessdata directory not found; OCR benchmarks need Tesseract language data");
+        }
+        settings = new OcrSettings();
+        
+        try (PDDocument document = new DocumentLoader().load(BenchmarkCorpus.get(BenchmarkCorpus.SCANNED))) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int page = 0; page < document.getNumberOfPages(); page++) {
+                pages.add(renderer.renderImageWithDPI(page, settings.getDpi(), ImageType.GRAY));
+            }
+        }
+        
+        warmEngine = new WarmTesseract(tessdataPath, settings);
+        tess4j = new Tesseract();
+        tess4j.setDatapath(tessdataPath);
+        tess4j.setLanguage(settings.getLanguage());
+        tess4j.setPageSegMode(settings.getPageSegMode());
+        tess4j.setOcrEngineMode(settings.getOcrEngineMode());
+    }
+    
+    @TearDown
+    public void close() {
+        warmEngine.close();
+    }
+    
+    private BufferedImage nextImage() {
+        BufferedImage image = pages.get(nextPage);
+        nextPage = (nextPage + 1) % pages.size();
+        return image;
+    }
+    
+    @Benchmark
+    public String warmEnginePage() throws TesseractException {
+        return warmEngine.doOCR(nextImage(), settings.getDpi());
+    }
+    
+    @Benchmark
+    public String tess4jPage() throws TesseractException {
+        return tess4j.doOCR(nextImage());
+    }
+    
+    // What every OCR cache lookup costs, to weigh against a page of OCR
+    @Benchmark
+    public OcrResultCache.Fingerprint fingerprintPage() {
+        return OcrResultCache.fingerprint(nextImage());
+    }
+}
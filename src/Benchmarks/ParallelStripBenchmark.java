@@ -0,0 +1,67 @@
+package pdftotext.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pdftotext.DocumentExtractor;
+
+// Whole-document text extraction of the 1000 page corpus file with 1 to 8
+// strip threads, each working on its own copy of the document, against one
+// PDFTextStripper.getText call over the whole document. Time per document.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ParallelStripBenchmark {
+    
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+    
+    private File file;
+    private PDDocument document;
+    private DocumentExtractor documentExtractor;
+    
+    @Setup
+    public void open() throws IOException {
+        file = BenchmarkCorpus.get(BenchmarkCorpus.LARGE);
+        documentExtractor = new DocumentExtractor(null);
+        documentExtractor.setStripThreadCount(threads);
+        // Every thread gets its copy, however many cores there are
+        documentExtractor.setMaxOpenDocuments(threads);
+        document = documentExtractor.getDocumentLoader().load(file);
+    }
+    
+    @TearDown
+    public void close() throws IOException {
+        document.close();
+    }
+    
+    @Benchmark
+    public void extractDocument(Blackhole blackhole) throws IOException {
+        documentExtractor.extract(document, file, page -> blackhole.consume(page.getText()), null);
+    }
+    
+    // The single call the extractor made before pages were split up; the
+    // same for every thread count
+    @Benchmark
+    public String singleStripper() throws IOException {
+        return new PDFTextStripper().getText(document);
+    }
+}
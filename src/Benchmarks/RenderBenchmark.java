@@ -0,0 +1,62 @@
+package pdftotext.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pdftotext.DocumentLoader;
+
+// Rendering one page for OCR, as OcrEngine.renderPage does, at several DPIs.
+// The allocation rate from the GC profiler is dominated by the page image.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RenderBenchmark {
+    
+    @Param({BenchmarkCorpus.TEXT, BenchmarkCorpus.SCANNED})
+    public String corpus;
+    
+    @Param({"150", "300", "400"})
+    public int dpi;
+    
+    private PDDocument document;
+    private PDFRenderer renderer;
+    private int pageCount;
+    private int nextPage;
+    
+    @Setup
+    public void open() throws IOException {
+        document = new DocumentLoader().load(BenchmarkCorpus.get(corpus));
+        renderer = new PDFRenderer(document);
+        pageCount = document.getNumberOfPages();
+    }
+    
+    @TearDown
+    public void close() throws IOException {
+        document.close();
+    }
+    
+    @Benchmark
+    public BufferedImage renderPage() throws IOException {
+        int page = nextPage;
+        nextPage = (nextPage + 1) % pageCount;
+        return renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+    }
+}
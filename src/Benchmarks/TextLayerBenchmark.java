@@ -0,0 +1,59 @@
+package pdftotext.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pdftotext.DocumentExtractor;
+
+// Text-layer stripping, one page per operation, through the same code path
+// DocumentExtractor uses for every page. Throughput is pages per second.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TextLayerBenchmark {
+    
+    @Param({BenchmarkCorpus.SMALL, BenchmarkCorpus.TEXT, BenchmarkCorpus.MIXED, BenchmarkCorpus.LARGE})
+    public String corpus;
+    
+    private PDDocument document;
+    private DocumentExtractor documentExtractor;
+    private PDFTextStripper stripper;
+    private int pageCount;
+    private int nextPage;
+    
+    @Setup
+    public void open() throws IOException {
+        documentExtractor = new DocumentExtractor(null);
+        document = documentExtractor.getDocumentLoader().load(BenchmarkCorpus.get(corpus));
+        stripper = new PDFTextStripper();
+        pageCount = document.getNumberOfPages();
+    }
+    
+    @TearDown
+    public void close() throws IOException {
+        document.close();
+    }
+    
+    @Benchmark
+    public String stripPage() {
+        int page = nextPage;
+        nextPage = (nextPage + 1) % pageCount;
+        return documentExtractor.extractTextDirectly(stripper, document, page);
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import pdftotext.DocumentExtractor;
+import pdftotext.DocumentLoader;
+import pdftotext.OutputFormat;
+import pdftotext.PageSink;
+import pdftotext.ResultCache;
+
+// Extracts many PDFs in one JVM so PDFBox and Tesseract are only warmed up
+// once. Documents run as tasks on the same work-stealing pool as the OCR page
+// tasks, so when only a few large documents are left their pages spread over
+// all workers instead of leaving cores idle at the end of the run.
+public class BatchExtractor {
+    
+    private final DocumentExtractor documentExtractor;
+    private final ResultCache resultCache;
+    private final ForkJoinPool pool;
+    private final File outputDir;
+    private final OutputFormat format;
+    // Documents open at once; waiting documents release their thread to the
+    // pool, so without a limit every queued document would be loaded. The
+    // permits are the extractor's, so the copies large documents are
+    // extracted with come out of the same limit.
+    private final Semaphore documentSlots;
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    
+    // resultCache may be null to always extract
+    public BatchExtractor(DocumentExtractor documentExtractor, ResultCache resultCache, ForkJoinPool pool, File outputDir,
+                          OutputFormat format) {
+        this.documentExtractor = documentExtractor;
+        this.resultCache = resultCache;
+        this.pool = pool;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.documentSlots = documentExtractor.getOpenDocuments();
+    }
+    
+    // Sources are PDF files, directories (searched recursively), glob patterns
+    // such as "scans/**/*.pdf", or "-" to read one source per line from stdin
+    public static List<File> collectInputs(List<String> sources, BufferedReader stdin) throws IOException {
+        Set<File> inputs = new LinkedHashSet<>();
+        for (String source : sources) {
+            if (source.equals("-")) {
+                String line;
+                while ((line = stdin.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        addSource(line.trim(), inputs);
+                    }
+                }
+            } else {
+                addSource(source, inputs);
+            }
+        }
+        return new ArrayList<>(inputs);
+    }
+    
+    private static void addSource(String source, Set<File> inputs) throws IOException {
+        int globStart = indexOfGlob(source);
+        if (globStart >= 0) {
+            addGlobMatches(source, globStart, inputs);
+            return;
+        }
+        
+        File file = new File(source);
+        if (file.isDirectory()) {
+            // PDFs by their header, so ones saved without the extension are found too
+            try (Stream<Path> paths = Files.walk(file.toPath())) {
+                inputs.addAll(paths.filter(Files::isRegularFile)
+                                   .filter(path -> DocumentLoader.isPdf(path.toFile()))
+                                   .sorted()
+                                   .map(Path::toFile)
+                                   .collect(Collectors.toList()));
+            }
+        } else if (file.exists()) {
+            inputs.add(file);
+        } else {
+            throw new IllegalArgumentException("PDF file does not exist: " + source);
+        }
+    }
+    
+    private static int indexOfGlob(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            if ("*?[{".indexOf(source.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Walks from the last directory before the first glob character and
+    // matches the rest of the pattern against paths relative to it
+    private static void addGlobMatches(String pattern, int globStart, Set<File> inputs) throws IOException {
+        int slash = pattern.lastIndexOf('/', globStart);
+        Path base = slash < 0 ? Paths.get(".") : Paths.get(slash == 0 ? "/" : pattern.substring(0, slash));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(slash + 1));
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        
+        try (Stream<Path> paths = Files.walk(base)) {
+            inputs.addAll(paths.filter(Files::isRegularFile)
+                               .filter(path -> matcher.matches(base.relativize(path)))
+                               .sorted()
+                               .map(Path::toFile)
+                               .collect(Collectors.toList()));
+        }
+    }
+    
+    // Returns the number of documents that failed
+    public int run(List<File> inputs) throws InterruptedException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create output directory: " + outputDir);
+        }
+        
+        long start = System.nanoTime();
+        Set<String> usedNames = new HashSet<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(inputs.size());
+        for (File input : inputs) {
+            File output = outputFor(input, usedNames);
+            documentSlots.acquire();
+            tasks.add(pool.submit(() -> {
+                try {
+                    extractDocument(input, output, inputs.size());
+                } finally {
+                    documentSlots.release();
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        
+        System.out.println(String.format("Batch finished: %d documents, %d failed in %.1f s",
+            inputs.size(), failed.get(), (System.nanoTime() - start) / 1e9));
+        return failed.get();
+    }
+    
+    // One output file per input, named after it; repeated names get a suffix
+    private File outputFor(File input, Set<String> usedNames) {
+        String name = input.getName();
+        if (name.toLowerCase().endsWith(".pdf")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        String candidate = name + format.getExtension();
+        for (int n = 2; !usedNames.add(candidate); n++) {
+            candidate = name + "-" + n + format.getExtension();
+        }
+        return new File(outputDir, candidate);
+    }
+    
+    private void extractDocument(File input, File output, int total) {
+        long start = System.nanoTime();
+        try (Writer out = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            boolean cached = false;
+            if (resultCache == null) {
+                extractDocument(input, out);
+            } else {
+                String key = resultCache.key(input, documentExtractor.getSettingsKey() + ";format=" + format.getName());
+                cached = resultCache.readOrExtract(key, out, cacheOut -> extractDocument(input, cacheOut));
+            }
+            System.out.println(String.format("[%d/%d] %s -> %s (%s, %.1f s)",
+                finished.incrementAndGet(), total, input.getPath(), output.getName(),
+                cached ? "cached" : "extracted", (System.nanoTime() - start) / 1e9));
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println(String.format("[%d/%d] %s failed: %s",
+                finished.incrementAndGet(), total, input.getPath(), e.getMessage()));
+        }
+    }
+    
+    // Returns false when OCR failed on a page, so the output is not cached
+    private boolean extractDocument(File input, Writer out) throws IOException {
+        try (PDDocument document = documentExtractor.getDocumentLoader().load(input)) {
+            PageSink writer = format.createWriter(out);
+            int failedPages = documentExtractor.extract(document, input, writer, null);
+            writer.finish();
+            return failedPages == 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import pdftotext.DocumentExtractor;
+import pdftotext.DocumentLoader;
+import pdftotext.OutputFormat;
+import pdftotext.PageSink;
+import pdftotext.ResultCache;
+
+// Keeps PDFBox and the Tesseract engines loaded and extracts PDFs posted to a
+// local HTTP endpoint, so a small document costs one request instead of a JVM
+// start and a traineddata load:
+//
+//   curl --data-binary @document.pdf http://localhost:8080/extract
+//   curl --data-binary @document.pdf 'http://localhost:8080/extract?format=jsonl'
+//
+// At most maxConcurrent documents are extracted at once and at most maxQueued
+// more wait for a slot. Anything beyond that, or a request that waits too
+// long, is turned away with 503 so clients back off instead of piling up.
+public class ExtractionServer {
+    
+    private static final long ADMISSION_TIMEOUT_SECONDS = 30;
+    
+    private final DocumentExtractor documentExtractor;
+    private final ResultCache resultCache;
+    private final OutputFormat defaultFormat;
+    private final Semaphore running;
+    private final int maxQueued;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    
+    // resultCache may be null to always extract; defaultFormat is used when a
+    // request does not ask for a format
+    public ExtractionServer(DocumentExtractor documentExtractor, ResultCache resultCache, OutputFormat defaultFormat,
+                            int port, int maxConcurrent, int maxQueued) throws IOException {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Maximum concurrent requests must be at least 1: " + maxConcurrent);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Maximum queued requests must not be negative: " + maxQueued);
+        }
+        this.documentExtractor = documentExtractor;
+        this.resultCache = resultCache;
+        this.defaultFormat = defaultFormat;
+        this.running = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        
+        // Only reachable from this machine
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/extract", this::handleExtract);
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/metrics", this::handleMetrics);
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+    }
+    
+    public void start() {
+        server.start();
+        System.out.println("Extraction server listening on http://" + server.getAddress().getHostString()
+                           + ":" + server.getAddress().getPort() + "/extract");
+    }
+    
+    public void stop() {
+        server.stop(1);
+        handlers.shutdownNow();
+        System.out.println("Extraction server stopped: " + served.get() + " documents served, "
+                           + rejected.get() + " requests rejected");
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        sendText(exchange, 200, "ok " + running.availablePermits() + " free slots, " + waiting.get() + " waiting\n");
+    }
+    
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] body = documentExtractor.getMetrics().toJson().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private void handleExtract(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "POST the PDF as the request body\n");
+                return;
+            }
+            OutputFormat format;
+            try {
+                format = requestedFormat(exchange);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            
+            if (waiting.incrementAndGet() > maxQueued + running.availablePermits()) {
+                waiting.decrementAndGet();
+                reject(exchange);
+                return;
+            }
+            boolean admitted;
+            try {
+                admitted = running.tryAcquire(ADMISSION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!admitted) {
+                reject(exchange);
+                return;
+            }
+            
+            try {
+                extract(exchange, format);
+            } finally {
+                running.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    // The format=... query parameter, if there is one
+    private OutputFormat requestedFormat(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("format=")) {
+                    return OutputFormat.parse(parameter.substring("format=".length()));
+                }
+            }
+        }
+        return defaultFormat;
+    }
+    
+    private void reject(HttpExchange exchange) throws IOException {
+        rejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendText(exchange, 503, "Server busy, try again later\n");
+    }
+    
+    private void extract(HttpExchange exchange, OutputFormat format) throws IOException {
+        long start = System.nanoTime();
+        // PDFBox needs random access, and extra render threads and the cache
+        // key read the file again, so the upload is spooled to disk first
+        File pdfFile = File.createTempFile("pdftotext-upload", ".pdf");
+        try {
+            try (InputStream in = exchange.getRequestBody()) {
+                Files.copy(in, pdfFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            
+            // Only the header is checked before the cache is asked, so a
+            // cached upload is never parsed
+            if (!DocumentLoader.isPdf(pdfFile)) {
+                sendText(exchange, 400, "Not a PDF: no %PDF header\n");
+                return;
+            }
+            
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            try {
+                exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+                // Length 0 selects chunked encoding, so pages go out as they finish
+                exchange.sendResponseHeaders(200, 0);
+                AtomicInteger pages = new AtomicInteger(-1);
+                boolean cached = false;
+                if (resultCache == null) {
+                    extractDocument(pdfFile, format, out, pages);
+                } else {
+                    String key = resultCache.key(pdfFile, documentExtractor.getSettingsKey() + ";format=" + format.getName());
+                    cached = resultCache.readOrExtract(key, out, cacheOut -> extractDocument(pdfFile, format, cacheOut, pages));
+                }
+                out.flush();
+                
+                served.incrementAndGet();
+                if (cached) {
+                    System.out.println(String.format("%s cached (%.3f s)", exchange.getRemoteAddress(),
+                        (System.nanoTime() - start) / 1e9));
+                } else {
+                    System.out.println(String.format("%s %d pages (extracted, %.3f s)", exchange.getRemoteAddress(),
+                        pages.get(), (System.nanoTime() - start) / 1e9));
+                }
+            } catch (IOException e) {
+                // The status line is already sent, so the error can only be
+                // reported at the end of the output
+                System.err.println("Extraction failed for " + exchange.getRemoteAddress() + ": " + e.getMessage());
+                out.write(format.formatError("extraction failed: " + e.getMessage()));
+                out.flush();
+            }
+        } finally {
+            Files.deleteIfExists(pdfFile.toPath());
+        }
+    }
+    
+    // Returns false when OCR failed on a page, so the output is not cached
+    private boolean extractDocument(File pdfFile, OutputFormat format, Writer out, AtomicInteger pages) throws IOException {
+        try (PDDocument document = documentExtractor.getDocumentLoader().load(pdfFile)) {
+            pages.set(document.getNumberOfPages());
+            PageSink writer = format.createWriter(out);
+            int failedPages = documentExtractor.extract(document, pdfFile, writer, null);
+            writer.finish();
+            return failedPages == 0;
+        }
+    }
+    
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
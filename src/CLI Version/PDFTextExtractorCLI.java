@@ -1,181 +1,612 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.text.PDFTextStripper;
+import pdftotext.DocumentClassification;
+import pdftotext.DocumentExtractor;
+import pdftotext.DocumentLoader;
+import pdftotext.ExtractionMethod;
+import pdftotext.HeapUsage;
+import pdftotext.NamedThreadFactory;
+import pdftotext.OcrEngine;
+import pdftotext.OcrSettings;
+import pdftotext.OutputFormat;
+import pdftotext.PageCache;
+import pdftotext.PageResult;
+import pdftotext.PageSelection;
+import pdftotext.PageSink;
+import pdftotext.ResultCache;
 
 public class PDFTextExtractorCLI {
     
-    private Tesseract tesseract;
+    private final OcrSettings ocrSettings;
+    private OcrEngine ocrEngine;
+    private DocumentExtractor documentExtractor;
+    private ResultCache resultCache;
+    private OutputFormat outputFormat = OutputFormat.TEXT;
     
     public PDFTextExtractorCLI() {
+        this(new OcrSettings());
+    }
+    
+    public PDFTextExtractorCLI(OcrSettings ocrSettings) {
+        this.ocrSettings = ocrSettings;
         initializeTesseract();
+        documentExtractor = new DocumentExtractor(ocrEngine);
+        // Registering starts the platform MBean server, which the first page
+        // of a short run should not wait for
+        new NamedThreadFactory("jmx-registration").newThread(documentExtractor.getMetrics()::registerMBeans).start();
+    }
+    
+    public DocumentExtractor getDocumentExtractor() {
+        return documentExtractor;
+    }
+    
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+        documentExtractor.getMetrics().setResultCache(resultCache);
+    }
+    
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+    
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+    
+    public void writeMetrics(String path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            out.write(documentExtractor.getMetrics().toJson());
+        }
+        System.out.println("Metrics saved to: " + path);
     }
     
     private void initializeTesseract() {
         try {
-            tesseract = new Tesseract();
-            
-            // Try different possible tessdata paths
-            String[] possiblePaths = {
-                "/opt/homebrew/share/tessdata",  // Apple Silicon Homebrew
-                "/usr/local/share/tessdata",     // Intel Homebrew
-                "/usr/share/tessdata",           // System installation
-                "tessdata",                      // Local copy
-                "lib/Tess4J/tessdata",          // Bundled copy
-                "../GitHub/ImageToText/Tess4J/tessdata",
-                "/Users/jasonhe/Desktop/future Github Projects/GitHub/ImageToText/Tess4J/tessdata"
-            };
-            
-            boolean tessdataFound = false;
-            for (String path : possiblePaths) {
-                File tessdataDir = new File(path);
-                if (tessdataDir.exists() && tessdataDir.isDirectory()) {
-                    tesseract.setDatapath(path);
-                    tessdataFound = true;
-                    System.out.println("Using tessdata path: " + path);
-                    break;
-                }
-            }
-            
-            if (!tessdataFound) {
+            if (OcrEngine.findTessdataPath() == null) {
                 System.err.println("Warning: Tessdata directory not found. OCR functionality will be disabled.");
-                System.err.println("Tried paths: " + String.join(", ", possiblePaths));
-                tesseract = null;
+                ocrEngine = null;
                 return;
             }
             
-            tesseract.setLanguage("eng");
-            tesseract.setPageSegMode(1);
-            tesseract.setOcrEngineMode(1);
+            ocrEngine = new OcrEngine(ocrSettings);
+            System.out.println("Using tessdata path: " + ocrEngine.getTessdataPath());
             
             // Don't test OCR initialization to avoid dependency issues
             // The OCR will be tested when actually needed
-            System.out.println("OCR engine initialized successfully");
+            System.out.println("OCR engine initialized successfully (" + ocrEngine.getWorkerCount() + " workers)");
             
         } catch (Exception e) {
             System.err.println("Warning: Failed to initialize OCR engine: " + e.getMessage());
             System.err.println("OCR functionality will be disabled, but regular PDF text extraction will still work.");
-            tesseract = null;
+            ocrEngine = null;
         }
     }
     
     public String extractTextFromPDF(String pdfPath) {
+        StringWriter text = new StringWriter();
+        extractTextFromPDF(pdfPath, text);
+        return text.toString();
+    }
+    
+    // Writes each page to out as soon as it is extracted, so memory use does
+    // not grow with the size of the document. A path of - reads the PDF from
+    // standard input.
+    public void extractTextFromPDF(String pdfPath, Writer out) {
+        if (pdfPath.equals("-")) {
+            System.out.println("Processing PDF from standard input");
+            extractTextFromPDF(System.in, out);
+            return;
+        }
+        
         File pdfFile = new File(pdfPath);
         if (!pdfFile.exists()) {
             throw new IllegalArgumentException("PDF file does not exist: " + pdfPath);
         }
         
-        if (!pdfFile.getName().toLowerCase().endsWith(".pdf")) {
+        // By content, so PDFs saved without the extension are accepted
+        if (!DocumentLoader.isPdf(pdfFile)) {
             throw new IllegalArgumentException("File is not a PDF: " + pdfPath);
         }
         
         System.out.println("Processing PDF: " + pdfFile.getName());
         
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            int pageCount = document.getNumberOfPages();
-            System.out.println("PDF has " + pageCount + " pages");
-            
-            // First, try to extract text directly
-            String extractedText = extractTextDirectly(document);
-            
-            // If no text found, try OCR on each page
-            if (extractedText == null || extractedText.trim().isEmpty()) {
-                System.out.println("No text found with direct extraction, using OCR...");
-                extractedText = extractTextWithOCR(document);
-            } else {
-                System.out.println("Text extracted successfully using direct method");
+        try {
+            if (resultCache == null) {
+                extractDocument(pdfFile, out);
+                return;
             }
             
-            return extractedText;
+            String key = resultCache.key(pdfFile, documentExtractor.getSettingsKey() + ";format=" + outputFormat.getName());
+            if (resultCache.readOrExtract(key, out, cacheOut -> extractDocument(pdfFile, cacheOut))) {
+                System.out.println("Text loaded from cache");
+            }
+            System.out.println(resultCache);
             
         } catch (IOException e) {
             throw new RuntimeException("Error processing PDF: " + e.getMessage(), e);
         }
     }
     
-    private String extractTextDirectly(PDDocument document) {
-        try {
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setStartPage(1);
-            stripper.setEndPage(document.getNumberOfPages());
-            return stripper.getText(document);
-        } catch (Exception e) {
-            System.out.println("Direct text extraction failed: " + e.getMessage());
-            return null;
+    // Streams and buffers have no file to hash, so they skip the result
+    // cache; their unchanged pages still come from the page cache
+    public void extractTextFromPDF(InputStream in, Writer out) {
+        try (PDDocument document = documentExtractor.getDocumentLoader().load(in)) {
+            extractDocument(document, null, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error processing PDF: " + e.getMessage(), e);
         }
     }
     
-    private String extractTextWithOCR(PDDocument document) {
-        if (tesseract == null) {
-            return "OCR not available - Tesseract not properly initialized";
+    public void extractTextFromPDF(ByteBuffer pdf, Writer out) {
+        try (PDDocument document = documentExtractor.getDocumentLoader().load(pdf)) {
+            extractDocument(document, null, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error processing PDF: " + e.getMessage(), e);
+        }
+    }
+    
+    private boolean extractDocument(File pdfFile, Writer out) throws IOException {
+        try (PDDocument document = documentExtractor.getDocumentLoader().load(pdfFile)) {
+            return extractDocument(document, pdfFile, out);
         }
+    }
+    
+    // source is null when the PDF did not come from a file. Returns false
+    // when OCR failed on a page, so the output is not cached.
+    private boolean extractDocument(PDDocument document, File source, Writer out) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        System.out.println("PDF has " + pageCount + " pages");
         
-        StringBuilder fullText = new StringBuilder();
-        PDFRenderer renderer = new PDFRenderer(document);
+        // Take each page from the text layer when it has one, OCR the rest
+        PageSink writer = outputFormat.createWriter(out);
+        AtomicInteger ocrPages = new AtomicInteger();
+        AtomicInteger blankPages = new AtomicInteger();
+        int failedPages = documentExtractor.extract(document, source, new PageSink() {
+            @Override
+            public void pageExtracted(PageResult page) throws IOException {
+                if (page.getMethod() == ExtractionMethod.BLANK) {
+                    blankPages.incrementAndGet();
+                } else if (page.getMethod() != ExtractionMethod.TEXT_LAYER) {
+                    ocrPages.incrementAndGet();
+                }
+                writer.pageExtracted(page);
+                documentExtractor.getMetrics().recordFirstByte();
+            }
+            
+            @Override
+            public boolean wantsWords() {
+                return writer.wantsWords();
+            }
+        }, page -> System.out.println("Processing page " + (page + 1) + " of " + pageCount + "..."));
+        writer.finish();
         
-        try {
-            int pageCount = document.getNumberOfPages();
-            for (int page = 0; page < pageCount; page++) {
-                System.out.println("Processing page " + (page + 1) + " of " + pageCount + "...");
-                
-                // Render page as image
-                BufferedImage image = renderer.renderImageWithDPI(page, 300); // 300 DPI for better OCR
-                
-                // Extract text using OCR
-                String pageText = tesseract.doOCR(image);
-                fullText.append("--- Page ").append(page + 1).append(" ---\n");
-                fullText.append(pageText).append("\n\n");
+        System.out.println("Text extracted: " + (pageCount - ocrPages.get() - blankPages.get())
+                           + " pages from text layer, " + ocrPages.get() + " pages with OCR, "
+                           + blankPages.get() + " blank pages");
+        if (failedPages > 0) {
+            System.out.println("OCR failed on " + failedPages + " pages");
+        }
+        if (ocrPages.get() > 0 && ocrEngine != null) {
+            System.out.println(ocrEngine.getRenderStats());
+            if (ocrEngine.getDecodeStats().getPages() > 0) {
+                System.out.println(ocrEngine.getDecodeStats());
+            }
+            System.out.println(ocrEngine.getOcrStats());
+            if (ocrEngine.getResultCache() != null) {
+                System.out.println(ocrEngine.getResultCache());
+            }
+            if (ocrEngine.getTiledPages() > 0) {
+                System.out.println("Pages recognized as tiles: " + ocrEngine.getTiledPages());
+            }
+            if (ocrEngine.isScriptDetection()) {
+                System.out.println(ocrEngine.getDetectionStats());
+                System.out.println("Pages turned upright: " + ocrEngine.getRotatedPages() + ", pages by language: "
+                                   + ocrEngine.getLanguagePages());
+                System.out.println(ocrEngine.getTesseractPool());
+            }
+            if (ocrEngine.getRasterPool() != null) {
+                System.out.println(ocrEngine.getRasterPool());
             }
-        } catch (Exception e) {
-            return "OCR extraction failed: " + e.getMessage();
         }
-        
-        return fullText.toString();
+        if (documentExtractor.getPageCache() != null) {
+            System.out.println(documentExtractor.getPageCache());
+        }
+        if (documentExtractor.getMetrics().getTimeToFirstByteMillis() >= 0) {
+            System.out.println("Time to first byte: " + documentExtractor.getMetrics().getTimeToFirstByteMillis()
+                               + " ms after JVM start");
+        }
+        return failedPages == 0;
+    }
+    
+    public void extractTextToFile(String pdfPath, String outputPath) {
+        try (Writer out = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8)) {
+            extractTextFromPDF(pdfPath, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error saving text to file: " + e.getMessage(), e);
+        }
+        System.out.println("Text saved to: " + outputPath);
     }
     
     public void saveTextToFile(String text, String outputPath) {
-        try {
-            Files.write(Paths.get(outputPath), text.getBytes());
+        try (Writer out = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8)) {
+            out.write(text);
             System.out.println("Text saved to: " + outputPath);
         } catch (IOException e) {
             throw new RuntimeException("Error saving text to file: " + e.getMessage(), e);
         }
     }
     
+    // Returns the number of documents that failed
+    public int extractBatch(List<String> sources, File outputDir) throws IOException, InterruptedException {
+        List<File> inputs = BatchExtractor.collectInputs(sources,
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        System.out.println("Batch mode: " + inputs.size() + " PDF files, output to " + outputDir.getPath());
+        
+        ForkJoinPool pool = ocrEngine != null ? ocrEngine.getWorkers() : new ForkJoinPool(ocrSettings.getWorkerCount());
+        int failures = new BatchExtractor(documentExtractor, resultCache, pool, outputDir, outputFormat).run(inputs);
+        if (resultCache != null) {
+            System.out.println(resultCache);
+        }
+        if (documentExtractor.getPageCache() != null) {
+            System.out.println(documentExtractor.getPageCache());
+        }
+        return failures;
+    }
+    
+    // Prints one JSON line per document saying whether it needs OCR, without
+    // extracting anything. Returns the number of documents that could not be read.
+    public int classifyDocuments(List<String> sources, PrintStream out) throws IOException {
+        List<File> inputs = BatchExtractor.collectInputs(sources,
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        int failures = 0;
+        for (File input : inputs) {
+            try (PDDocument document = documentExtractor.getDocumentLoader().load(input)) {
+                out.println(DocumentClassification.classify(document).toJson(input.getPath()));
+            } catch (IOException e) {
+                System.err.println("Error: Could not classify " + input.getPath() + ": " + e.getMessage());
+                failures++;
+            }
+        }
+        out.flush();
+        return failures;
+    }
+    
+    // Serves extraction requests until the process is stopped
+    public ExtractionServer startServer(int port, int maxConcurrent, int maxQueued) throws IOException {
+        if (ocrEngine != null) {
+            try {
+                ocrEngine.warmUp();
+                System.out.println("Loaded " + ocrEngine.getWorkerCount() + " Tesseract engines");
+            } catch (Exception e) {
+                System.err.println("Warning: Failed to load Tesseract engines: " + e.getMessage());
+            }
+        }
+        ExtractionServer server = new ExtractionServer(documentExtractor, resultCache, outputFormat, port,
+                                                       maxConcurrent, maxQueued);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (ocrEngine != null) {
+                ocrEngine.close();
+            }
+        }));
+        return server;
+    }
+    
+    private static void printUsage() {
+        System.out.println("PDF Text Extractor CLI");
+        System.out.println("Usage: java -cp 'lib/*:.' PDFTextExtractorCLI [options] <pdf_file> [output_file]");
+        System.out.println("       java -cp 'lib/*:.' PDFTextExtractorCLI [options] --batch <output_dir> <source>...");
+        System.out.println("       java -cp 'lib/*:.' PDFTextExtractorCLI [options] --server <port>");
+        System.out.println("       java -cp 'lib/*:.' PDFTextExtractorCLI [options] --classify <source>...");
+        System.out.println("");
+        System.out.println("Arguments:");
+        System.out.println("  pdf_file    Path to the PDF file to process, or - to read it from standard input;");
+        System.out.println("              files are recognized by their %PDF header, not their name");
+        System.out.println("  output_file Optional path to save extracted text (default: prints to console)");
+        System.out.println("  source      Batch input: a PDF file, a directory, a glob such as 'scans/**/*.pdf',");
+        System.out.println("              or - to read one source per line from stdin");
+        System.out.println("");
+        System.out.println("Options:");
+        System.out.println("  --batch DIR         Extract every source into DIR, one file per PDF");
+        System.out.println("  --format FORMAT     Output format: text, jsonl, hocr or alto (default: text); jsonl, hocr");
+        System.out.println("                      and alto include word bounding boxes and OCR confidence");
+        System.out.println("  --workers N         Number of parallel OCR workers (default: number of CPU cores)");
+        System.out.println("  --render-threads N  Number of page rendering threads (default: 1)");
+        System.out.println("  --strip-threads N   Threads stripping the text layer of large documents (default: CPU cores)");
+        System.out.println("  --max-open-documents N");
+        System.out.println("                      Documents open at once, counting batch documents and the copies");
+        System.out.println("                      large documents are extracted with (default: CPU cores)");
+        System.out.println("  --queue-depth N     Rendered pages buffered ahead of OCR (default: 4)");
+        System.out.println("  --dpi N             Highest resolution pages are rendered at for OCR (default: 300)");
+        System.out.println("  --fixed-dpi         Render every page at --dpi instead of the resolution of its scan");
+        System.out.println("  --render-mode MODE  Page images for OCR: gray, binary or color (default: gray)");
+        System.out.println("  --always-render     Render scanned pages instead of reading their scan image directly");
+        System.out.println("  --ocr-cache MB      Memory for results of page images OCRed before, reused for repeated");
+        System.out.println("                      pages such as cover sheets (default: 64, 0 turns it off)");
+        System.out.println("  --keep-blank        OCR page images without ink instead of returning empty text");
+        System.out.println("  --tile-ocr MP       OCR page images over MP megapixels as overlapping tiles on all workers,");
+        System.out.println("                      for drawings and newspapers; A0 at 300 DPI is 140 (default: off)");
+        System.out.println("  --lang LANG         Tesseract language, such as eng or eng+fra (default: eng)");
+        System.out.println("  --detect-script     Check each OCR page for orientation and script first, turn it upright");
+        System.out.println("                      and OCR it in the language of its script; needs osd.traineddata");
+        System.out.println("  --script-lang MAP   Languages for scripts with --detect-script, such as Cyrillic=rus+ukr,");
+        System.out.println("                      Latin=deu (default: Cyrillic=rus, Greek=ell, Arabic=ara, Han=chi_sim, ...)");
+        System.out.println("  --pages RANGES      Only extract these pages, such as 1-5,8,20- (default: all)");
+        System.out.println("  --every N           Only extract every Nth of the selected pages, starting with the first");
+        System.out.println("  --max-chars N       Stop taking new pages once N characters are extracted");
+        System.out.println("  --max-seconds N     Stop taking new pages after N seconds per document");
+        System.out.println("  --min-text-chars N  Pages with fewer text-layer characters are OCRed (default: 10)");
+        System.out.println("  --classify          Print whether each source is text, scanned, mixed or blank as JSON");
+        System.out.println("                      lines, without extracting it");
+        System.out.println("  --no-preflight      Strip every page before deciding on OCR instead of classifying it first");
+        System.out.println("  --max-memory MB     Heap used for PDF data before it spills to a scratch file (default: 256,");
+        System.out.println("                      -1 keeps everything on the heap)");
+        System.out.println("  --scratch-dir DIR   Directory for scratch files (default: system temp directory)");
+        System.out.println("  --no-mmap           Read PDF files through PDFBox's file reader instead of memory-mapping them");
+        System.out.println("  --cache             Reuse results for unchanged PDFs, and for unchanged pages of changed");
+        System.out.println("                      ones, from " + ResultCache.defaultDirectory());
+        System.out.println("  --cache-dir DIR     Same as --cache with a different cache directory");
+        System.out.println("  --cache-size MB     Cache size limit, shared by results and pages; least recently used");
+        System.out.println("                      entries are evicted (default: 1024)");
+        System.out.println("  --metrics-json FILE Write counters and stage timings as JSON at the end of the run");
+        System.out.println("  --server PORT       Keep running and extract PDFs POSTed to http://localhost:PORT/extract");
+        System.out.println("  --max-concurrent N  Server: documents extracted at once (default: 4)");
+        System.out.println("  --max-queued N      Server: requests waiting for a slot before new ones get 503 (default: 16)");
+        System.out.println("");
+        System.out.println("Examples:");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI document.pdf");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI document.pdf output.txt");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI --workers 8 scanned.pdf output.txt");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI --format jsonl document.pdf pages.jsonl");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI --pages 1-3 --max-chars 2000 --batch out archive/");
+        System.out.println("  curl -s https://example.com/report.pdf | java -cp 'lib/*:.' PDFTextExtractorCLI - report.txt");
+        System.out.println("  find archive -name '*.pdf' | java -cp 'lib/*:.' PDFTextExtractorCLI --batch out -");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI --classify inbox/");
+        System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI --server 8080");
+    }
+    
+    private static int intOption(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return Integer.parseInt(args[index]);
+    }
+    
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.out.println("PDF Text Extractor CLI");
-            System.out.println("Usage: java -cp 'lib/*:.' PDFTextExtractorCLI <pdf_file> [output_file]");
-            System.out.println("");
-            System.out.println("Arguments:");
-            System.out.println("  pdf_file    Path to the PDF file to process");
-            System.out.println("  output_file Optional path to save extracted text (default: prints to console)");
-            System.out.println("");
-            System.out.println("Examples:");
-            System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI document.pdf");
-            System.out.println("  java -cp 'lib/*:.' PDFTextExtractorCLI document.pdf output.txt");
+        OcrSettings ocrSettings = new OcrSettings();
+        Integer minTextChars = null;
+        Integer stripThreads = null;
+        Integer maxOpenDocuments = null;
+        boolean preflight = true;
+        boolean classify = false;
+        Long maxMemoryMb = null;
+        File scratchDir = null;
+        boolean mapFiles = true;
+        File batchOutputDir = null;
+        File cacheDir = null;
+        long cacheSizeMb = 1024;
+        Integer serverPort = null;
+        String metricsPath = null;
+        int maxConcurrent = 4;
+        int maxQueued = 16;
+        OutputFormat outputFormat = OutputFormat.TEXT;
+        PageSelection pageSelection = new PageSelection();
+        List<String> positional = new ArrayList<>();
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--batch")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    batchOutputDir = new File(args[++i]);
+                } else if (arg.equals("--format")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    outputFormat = OutputFormat.parse(args[++i]);
+                } else if (arg.equals("--workers")) {
+                    ocrSettings.setWorkerCount(intOption(args, ++i, arg));
+                } else if (arg.equals("--render-threads")) {
+                    ocrSettings.setRenderThreadCount(intOption(args, ++i, arg));
+                } else if (arg.equals("--strip-threads")) {
+                    stripThreads = intOption(args, ++i, arg);
+                } else if (arg.equals("--max-open-documents")) {
+                    maxOpenDocuments = intOption(args, ++i, arg);
+                } else if (arg.equals("--queue-depth")) {
+                    ocrSettings.setQueueDepth(intOption(args, ++i, arg));
+                } else if (arg.equals("--dpi")) {
+                    ocrSettings.setDpi(intOption(args, ++i, arg));
+                } else if (arg.equals("--fixed-dpi")) {
+                    ocrSettings.setAdaptiveDpi(false);
+                } else if (arg.equals("--render-mode")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    ocrSettings.setRenderMode(OcrSettings.parseRenderMode(args[++i]));
+                } else if (arg.equals("--ocr-cache")) {
+                    ocrSettings.setResultCacheMb(intOption(args, ++i, arg));
+                } else if (arg.equals("--tile-ocr")) {
+                    ocrSettings.setTileMegapixels(intOption(args, ++i, arg));
+                } else if (arg.equals("--lang")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    ocrSettings.setLanguage(args[++i]);
+                } else if (arg.equals("--detect-script")) {
+                    ocrSettings.setScriptDetection(true);
+                } else if (arg.equals("--script-lang")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    ocrSettings.setScriptLanguages(args[++i]);
+                } else if (arg.equals("--keep-blank")) {
+                    ocrSettings.setBlankDetection(false);
+                } else if (arg.equals("--always-render")) {
+                    ocrSettings.setEmbeddedImageOcr(false);
+                } else if (arg.equals("--pages")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    pageSelection.setRanges(args[++i]);
+                } else if (arg.equals("--every")) {
+                    pageSelection.setEvery(intOption(args, ++i, arg));
+                } else if (arg.equals("--max-chars")) {
+                    pageSelection.setMaxChars(intOption(args, ++i, arg));
+                } else if (arg.equals("--max-seconds")) {
+                    pageSelection.setMaxMillis(intOption(args, ++i, arg) * 1000L);
+                } else if (arg.equals("--min-text-chars")) {
+                    minTextChars = intOption(args, ++i, arg);
+                } else if (arg.equals("--classify")) {
+                    classify = true;
+                } else if (arg.equals("--no-preflight")) {
+                    preflight = false;
+                } else if (arg.equals("--max-memory")) {
+                    maxMemoryMb = (long) intOption(args, ++i, arg);
+                } else if (arg.equals("--scratch-dir")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    scratchDir = new File(args[++i]);
+                } else if (arg.equals("--no-mmap")) {
+                    mapFiles = false;
+                } else if (arg.equals("--cache")) {
+                    cacheDir = ResultCache.defaultDirectory();
+                } else if (arg.equals("--cache-dir")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    cacheDir = new File(args[++i]);
+                } else if (arg.equals("--cache-size")) {
+                    cacheSizeMb = intOption(args, ++i, arg);
+                } else if (arg.equals("--metrics-json")) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    metricsPath = args[++i];
+                } else if (arg.equals("--server")) {
+                    serverPort = intOption(args, ++i, arg);
+                } else if (arg.equals("--max-concurrent")) {
+                    maxConcurrent = intOption(args, ++i, arg);
+                } else if (arg.equals("--max-queued")) {
+                    maxQueued = intOption(args, ++i, arg);
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    positional.add(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
             System.exit(1);
         }
         
-        String pdfPath = args[0];
-        String outputPath = args.length > 1 ? args[1] : null;
+        if (positional.isEmpty() && serverPort == null) {
+            printUsage();
+            System.exit(1);
+        }
+        
+        String pdfPath = positional.isEmpty() ? null : positional.get(0);
+        String outputPath = positional.size() > 1 ? positional.get(1) : null;
+        
+        // When the text goes to the console, keep stdout for the text alone
+        // and send progress messages to stderr
+        PrintStream textOut = System.out;
+        if (serverPort == null && batchOutputDir == null && (classify || outputPath == null)) {
+            System.setOut(System.err);
+        }
         
         try {
-            PDFTextExtractorCLI extractor = new PDFTextExtractorCLI();
-            String extractedText = extractor.extractTextFromPDF(pdfPath);
+            PDFTextExtractorCLI extractor = new PDFTextExtractorCLI(ocrSettings);
+            extractor.setOutputFormat(outputFormat);
+            if (minTextChars != null) {
+                extractor.getDocumentExtractor().setMinTextChars(minTextChars);
+            }
+            if (stripThreads != null) {
+                extractor.getDocumentExtractor().setStripThreadCount(stripThreads);
+            }
+            if (maxOpenDocuments != null) {
+                extractor.getDocumentExtractor().setMaxOpenDocuments(maxOpenDocuments);
+            }
+            extractor.getDocumentExtractor().setPageSelection(pageSelection);
+            if (!preflight) {
+                extractor.getDocumentExtractor().setPreflight(false);
+            }
+            DocumentLoader documentLoader = extractor.getDocumentExtractor().getDocumentLoader();
+            if (maxMemoryMb != null) {
+                documentLoader.setMaxMainMemoryBytes(maxMemoryMb < 0 ? -1 : maxMemoryMb * 1024 * 1024);
+            }
+            if (scratchDir != null) {
+                documentLoader.setScratchDirectory(scratchDir);
+            }
+            if (!mapFiles) {
+                documentLoader.setMapFiles(false);
+            }
+            if (cacheDir != null) {
+                // Both caches live under the cache directory, so they share
+                // --cache-size: half each, or all of it for the pages when
+                // whole results are not cached
+                long cacheBytes = cacheSizeMb * 1024 * 1024;
+                boolean cacheResults = !pageSelection.hasTimeBudget();
+                long pageCacheBytes = cacheResults ? cacheBytes / 2 : cacheBytes;
+                // Pages are cached even when whole results are not
+                extractor.getDocumentExtractor().setPageCache(
+                    new PageCache(new File(cacheDir, "pages"), pageCacheBytes));
+                if (cacheResults) {
+                    extractor.setResultCache(new ResultCache(cacheDir, cacheBytes - pageCacheBytes));
+                } else {
+                    // What fits in the time differs from run to run
+                    System.err.println("Warning: --max-seconds results are not cached, only their pages");
+                }
+            }
             
-            if (outputPath != null) {
-                extractor.saveTextToFile(extractedText, outputPath);
+            if (serverPort != null) {
+                // Metrics are served at /metrics while the server runs
+                extractor.startServer(serverPort, maxConcurrent, maxQueued);
+                return;
+            }
+            
+            int failures = 0;
+            if (classify) {
+                failures = extractor.classifyDocuments(positional, textOut);
+            } else if (batchOutputDir != null) {
+                failures = extractor.extractBatch(positional, batchOutputDir);
+            } else if (outputPath != null) {
+                extractor.extractTextToFile(pdfPath, outputPath);
             } else {
-                System.out.println("\n=== EXTRACTED TEXT ===");
-                System.out.println(extractedText);
+                Writer out = new BufferedWriter(new OutputStreamWriter(textOut, StandardCharsets.UTF_8));
+                if (outputFormat == OutputFormat.TEXT) {
+                    out.write("\n=== EXTRACTED TEXT ===\n");
+                }
+                extractor.extractTextFromPDF(pdfPath, out);
+                out.flush();
+            }
+            System.out.println(HeapUsage.describePeak());
+            if (metricsPath != null) {
+                extractor.writeMetrics(metricsPath);
+            }
+            if (failures > 0) {
+                System.exit(1);
             }
             
         } catch (Exception e) {
@@ -184,4 +615,4 @@ public class PDFTextExtractorCLI {
             System.exit(1);
         }
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.IOException;
+
+// One dropped or uploaded PDF on its way through the job queue. The state,
+// page counts and text are written by the job's thread and read by the Swing
+// thread; the text goes to a spool file as each page finishes.
+public class ExtractionJob {
+    
+    public enum Priority {
+        HIGH("high"),
+        NORMAL("normal"),
+        LOW("low");
+        
+        private final String label;
+        
+        Priority(String label) {
+            this.label = label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
+    public enum State {
+        QUEUED("queued"),
+        RUNNING("running"),
+        DONE("done"),
+        CANCELLED("cancelled"),
+        FAILED("failed");
+        
+        private final String label;
+        
+        State(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private final File file;
+    // Submission order, which decides between jobs of the same priority
+    private final long sequence;
+    private volatile Priority priority;
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile int pageCount;
+    private volatile int pagesDone;
+    private volatile String error;
+    // null until the job starts
+    private volatile TextSpool spool;
+    
+    ExtractionJob(File file, Priority priority, long sequence) {
+        this.file = file;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    public String getName() {
+        return file.getName();
+    }
+    
+    long getSequence() {
+        return sequence;
+    }
+    
+    public Priority getPriority() {
+        return priority;
+    }
+    
+    void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    void setState(State state) {
+        this.state = state;
+    }
+    
+    public boolean isFinished() {
+        return state == State.DONE || state == State.CANCELLED || state == State.FAILED;
+    }
+    
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    void requestCancel() {
+        cancelRequested = true;
+    }
+    
+    // 0 until the document is opened
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+    
+    public int getPagesDone() {
+        return pagesDone;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    void setError(String error) {
+        this.error = error;
+    }
+    
+    // The text extracted so far, or null before the job started
+    public TextSpool getSpool() {
+        return spool;
+    }
+    
+    void openSpool() throws IOException {
+        spool = new TextSpool();
+    }
+    
+    void appendPage(String pageText) throws IOException {
+        spool.appendPage(pageText);
+        pagesDone++;
+    }
+    
+    // Deletes the job's text; for jobs that are finished
+    public void close() {
+        TextSpool text = spool;
+        if (text != null) {
+            text.close();
+        }
+    }
+    
+    // One line for the job list
+    public String describe() {
+        StringBuilder line = new StringBuilder(getName()).append(" - ").append(state.getLabel());
+        if (state == State.QUEUED && priority != Priority.NORMAL) {
+            line.append(" (").append(priority).append(" priority)");
+        } else if (pageCount > 0 && state != State.QUEUED) {
+            line.append(" (").append(pagesDone).append("/").append(pageCount).append(")");
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import pdftotext.DocumentExtractor;
+import pdftotext.NamedThreadFactory;
+import pdftotext.PageResult;
+import pdftotext.PageSink;
+import pdftotext.TextPageWriter;
+
+// Runs the GUI's extraction jobs: a few documents at once, each on its own
+// thread with its own PDDocument, taken from the queue highest priority first
+// and in submission order within a priority. Their OCR pages all go to the
+// OCR engine's shared, bounded worker pool. Cancelling a queued job removes
+// it; cancelling a running job stops it between pages. Listeners are called
+// on the Swing thread.
+public class ExtractionJobQueue {
+    
+    public interface Listener {
+        // State, page count or priority changed
+        void jobChanged(ExtractionJob job);
+        
+        // The page is already in the job's spool, and possibly more after it
+        void pageExtracted(ExtractionJob job, PageResult page);
+        
+        void ocrPageStarted(ExtractionJob job, int page);
+    }
+    
+    private final DocumentExtractor documentExtractor;
+    private final Listener listener;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<JobTask> tasks = new ArrayList<>();
+    
+    public ExtractionJobQueue(DocumentExtractor documentExtractor, int concurrentJobs, Listener listener) {
+        if (concurrentJobs < 1) {
+            throw new IllegalArgumentException("Concurrent jobs must be at least 1: " + concurrentJobs);
+        }
+        this.documentExtractor = documentExtractor;
+        this.listener = listener;
+        executor = new ThreadPoolExecutor(concurrentJobs, concurrentJobs, 0, TimeUnit.MILLISECONDS,
+                                          new PriorityBlockingQueue<>(), new NamedThreadFactory("extraction-job"));
+        // With every thread waiting on the queue, new jobs always go through
+        // it and so are taken in priority order
+        executor.prestartAllCoreThreads();
+    }
+    
+    public ExtractionJob submit(File file, ExtractionJob.Priority priority) {
+        ExtractionJob job = new ExtractionJob(file, priority, sequence.incrementAndGet());
+        JobTask task = new JobTask(job);
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        executor.execute(task);
+        return job;
+    }
+    
+    // Only affects jobs that have not started
+    public void setPriority(ExtractionJob job, ExtractionJob.Priority priority) {
+        JobTask task = findTask(job);
+        // Re-queued so the queue sees the new order
+        if (task != null && executor.remove(task)) {
+            job.setPriority(priority);
+            executor.execute(task);
+            changed(job);
+        }
+    }
+    
+    public void cancel(ExtractionJob job) {
+        JobTask task = findTask(job);
+        if (task != null && executor.remove(task)) {
+            finish(task, ExtractionJob.State.CANCELLED);
+            return;
+        }
+        // Running; the extraction notices before its next page
+        job.requestCancel();
+    }
+    
+    // Cancels every job and waits briefly for the running ones to stop
+    public void shutdown() {
+        synchronized (tasks) {
+            for (JobTask task : tasks) {
+                task.job.requestCancel();
+            }
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private JobTask findTask(ExtractionJob job) {
+        synchronized (tasks) {
+            for (JobTask task : tasks) {
+                if (task.job == job) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private void finish(JobTask task, ExtractionJob.State state) {
+        synchronized (tasks) {
+            tasks.remove(task);
+        }
+        task.job.setState(state);
+        changed(task.job);
+    }
+    
+    private void changed(ExtractionJob job) {
+        SwingUtilities.invokeLater(() -> listener.jobChanged(job));
+    }
+    
+    private class JobTask implements Runnable, Comparable<JobTask> {
+        
+        private final ExtractionJob job;
+        
+        JobTask(ExtractionJob job) {
+            this.job = job;
+        }
+        
+        @Override
+        public int compareTo(JobTask other) {
+            int byPriority = job.getPriority().compareTo(other.job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(job.getSequence(), other.job.getSequence());
+        }
+        
+        @Override
+        public void run() {
+            if (job.isCancelRequested()) {
+                finish(this, ExtractionJob.State.CANCELLED);
+                return;
+            }
+            job.setState(ExtractionJob.State.RUNNING);
+            changed(job);
+            
+            try {
+                job.openSpool();
+            } catch (IOException e) {
+                job.setError("Could not create a temporary file for the text: " + e.getMessage());
+                finish(this, ExtractionJob.State.FAILED);
+                return;
+            }
+            try (PDDocument document = documentExtractor.getDocumentLoader().load(job.getFile())) {
+                job.setPageCount(document.getNumberOfPages());
+                changed(job);
+                documentExtractor.extract(document, job.getFile(), new PageSink() {
+                    @Override
+                    public void pageExtracted(PageResult page) throws IOException {
+                        job.appendPage(TextPageWriter.formatPage(page));
+                        SwingUtilities.invokeLater(() -> listener.pageExtracted(job, page));
+                    }
+                    
+                    @Override
+                    public boolean isCancelled() {
+                        return job.isCancelRequested();
+                    }
+                }, page -> SwingUtilities.invokeLater(() -> listener.ocrPageStarted(job, page)));
+                finish(this, ExtractionJob.State.DONE);
+            } catch (CancellationException e) {
+                finish(this, ExtractionJob.State.CANCELLED);
+            } catch (Exception e) {
+                job.setError("Error processing PDF: " + e.getMessage());
+                finish(this, ExtractionJob.State.FAILED);
+            }
+        }
+    }
+}
@@ -9,36 +9,50 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.dnd.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
-import javax.imageio.ImageIO;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.PDFTextStripperByArea;
 import javax.swing.UIManager;
+import pdftotext.DocumentExtractor;
+import pdftotext.DocumentLoader;
+import pdftotext.OcrEngine;
+import pdftotext.OcrSettings;
+import pdftotext.PageResult;
 
 public class PDFTextExtractor extends JFrame implements DropTargetListener {
     
+    // Text held in the text area at once; wrapping and painting a JTextArea
+    // gets slow well before the heap runs out
+    private static final long WINDOW_BYTES = 512 * 1024;
+    
     private JPanel mainPanel;
     private JLabel dropZoneLabel;
     private JTextArea textArea;
+    private JButton previousPagesButton;
+    private JButton nextPagesButton;
+    private JLabel windowLabel;
     private JButton uploadButton;
     private JButton copyButton;
     private JButton clearButton;
     private JButton saveButton;
+    private JButton cancelButton;
+    private JButton runNextButton;
+    private JComboBox<ExtractionJob.Priority> priorityBox;
+    private DefaultListModel<ExtractionJob> jobListModel;
+    private JList<ExtractionJob> jobList;
     private JProgressBar progressBar;
     private JLabel statusLabel;
     private JLabel pageInfoLabel;
-    private Tesseract tesseract;
+    private OcrEngine ocrEngine;
+    private DocumentExtractor documentExtractor;
     private DropTarget dropTarget;
-    private PDDocument currentDocument;
-    private int currentPageCount;
-    private String currentFileName;
+    private ExtractionJobQueue jobQueue;
+    // The job whose text is shown
+    private ExtractionJob displayedJob;
+    // The pages of the displayed job in the text area, first inclusive and
+    // last exclusive; the rest of its text stays in its spool file
+    private int windowFirst;
+    private int windowLast;
     
     public PDFTextExtractor() {
         initializeComponents();
@@ -46,6 +60,9 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         setupEventHandlers();
         setupDragAndDrop();
         initializeTesseract();
+        documentExtractor = new DocumentExtractor(ocrEngine);
+        documentExtractor.getMetrics().registerMBeans();
+        jobQueue = new ExtractionJobQueue(documentExtractor, Integer.getInteger("pdftotext.gui.jobs", 2), createJobListener());
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setTitle("PDF Text Extractor - Professional Edition");
         setSize(900, 700);
@@ -66,13 +83,17 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         // Text display panel
         JPanel textPanel = createTextPanel();
         
+        // Job list panel
+        JPanel jobPanel = createJobPanel();
+        
         // Status panel
         JPanel statusPanel = createStatusPanel();
         
-        // Create a center panel that contains both control and text panels
+        // Create a center panel that contains the control, text and job panels
         JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
         centerPanel.add(controlPanel, BorderLayout.NORTH);
         centerPanel.add(textPanel, BorderLayout.CENTER);
+        centerPanel.add(jobPanel, BorderLayout.EAST);
         
         mainPanel.add(dropZonePanel, BorderLayout.NORTH);
         mainPanel.add(centerPanel, BorderLayout.CENTER);
@@ -108,6 +129,11 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         uploadButton.setForeground(Color.BLACK);
         uploadButton.setFocusPainted(false);
         
+        // Priority of the files dropped or uploaded next
+        priorityBox = new JComboBox<>(ExtractionJob.Priority.values());
+        priorityBox.setSelectedItem(ExtractionJob.Priority.NORMAL);
+        priorityBox.setToolTipText("Priority of new jobs");
+        
         copyButton = new JButton("Copy Text");
         copyButton.setPreferredSize(new Dimension(120, 35));
         copyButton.setFont(new Font("Arial", Font.BOLD, 12));
@@ -133,6 +159,7 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         clearButton.setEnabled(false);
         
         panel.add(uploadButton);
+        panel.add(priorityBox);
         panel.add(copyButton);
         panel.add(saveButton);
         panel.add(clearButton);
@@ -161,7 +188,65 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         scrollPane.setBorder(BorderFactory.createLoweredBevelBorder());
         scrollPane.setPreferredSize(new Dimension(0, 400));
         
+        // Long results are shown a window of pages at a time
+        previousPagesButton = new JButton("< Previous Pages");
+        previousPagesButton.setFont(new Font("Arial", Font.PLAIN, 11));
+        previousPagesButton.setEnabled(false);
+        nextPagesButton = new JButton("Next Pages >");
+        nextPagesButton.setFont(new Font("Arial", Font.PLAIN, 11));
+        nextPagesButton.setEnabled(false);
+        windowLabel = new JLabel("");
+        windowLabel.setFont(new Font("Arial", Font.PLAIN, 11));
+        windowLabel.setForeground(new Color(100, 100, 100));
+        
+        JPanel navigationPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 2));
+        navigationPanel.add(previousPagesButton);
+        navigationPanel.add(windowLabel);
+        navigationPanel.add(nextPagesButton);
+        
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(navigationPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+    
+    private JPanel createJobPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(new TitledBorder("Jobs"));
+        panel.setPreferredSize(new Dimension(240, 0));
+        
+        jobListModel = new DefaultListModel<>();
+        jobList = new JList<>(jobListModel);
+        jobList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        jobList.setFont(new Font("Arial", Font.PLAIN, 11));
+        jobList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                ExtractionJob job = (ExtractionJob) value;
+                setText(job.describe());
+                if (!isSelected && job.getState() == ExtractionJob.State.FAILED) {
+                    setForeground(new Color(220, 20, 60));
+                }
+                return this;
+            }
+        });
+        
+        cancelButton = new JButton("Cancel Job");
+        cancelButton.setFont(new Font("Arial", Font.PLAIN, 11));
+        cancelButton.setEnabled(false);
+        
+        runNextButton = new JButton("Run Next");
+        runNextButton.setFont(new Font("Arial", Font.PLAIN, 11));
+        runNextButton.setToolTipText("Give the selected queued job high priority");
+        runNextButton.setEnabled(false);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
+        buttonPanel.add(runNextButton);
+        buttonPanel.add(cancelButton);
+        
+        panel.add(new JScrollPane(jobList), BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
         return panel;
     }
     
@@ -225,6 +310,42 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
                 clearText();
             }
         });
+        
+        previousPagesButton.addActionListener(e -> {
+            TextSpool spool = displayedJob.getSpool();
+            showWindow(spool.windowStart(windowFirst, WINDOW_BYTES), windowFirst);
+        });
+        
+        nextPagesButton.addActionListener(e -> {
+            TextSpool spool = displayedJob.getSpool();
+            showWindow(windowLast, spool.windowEnd(windowLast, WINDOW_BYTES));
+        });
+        
+        cancelButton.addActionListener(e -> {
+            ExtractionJob job = jobList.getSelectedValue();
+            if (job != null) {
+                jobQueue.cancel(job);
+                statusLabel.setText("Cancelling: " + job.getName());
+            }
+        });
+        
+        runNextButton.addActionListener(e -> {
+            ExtractionJob job = jobList.getSelectedValue();
+            if (job != null) {
+                jobQueue.setPriority(job, ExtractionJob.Priority.HIGH);
+            }
+        });
+        
+        jobList.addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting()) {
+                return;
+            }
+            ExtractionJob job = jobList.getSelectedValue();
+            if (job != null && job != displayedJob) {
+                displayJob(job);
+            }
+            updateJobButtons();
+        });
     }
     
     private void setupDragAndDrop() {
@@ -233,46 +354,17 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
     
     private void initializeTesseract() {
         try {
-            tesseract = new Tesseract();
-            
-            // Try different possible tessdata paths
-            String[] possiblePaths = {
-                "/opt/homebrew/share/tessdata",  // Apple Silicon Homebrew
-                "/usr/local/share/tessdata",     // Intel Homebrew
-                "/usr/share/tessdata",           // System installation
-                "tessdata",                      // Local copy
-                "lib/Tess4J/tessdata",          // Bundled copy
-                "../GitHub/ImageToText/Tess4J/tessdata",
-                "/Users/jasonhe/Desktop/future Github Projects/GitHub/ImageToText/Tess4J/tessdata"
-            };
-            
-            boolean tessdataFound = false;
-            for (String path : possiblePaths) {
-                File tessdataDir = new File(path);
-                if (tessdataDir.exists() && tessdataDir.isDirectory()) {
-                    tesseract.setDatapath(path);
-                    tessdataFound = true;
-                    System.out.println("Using tessdata path: " + path);
-                    break;
-                }
-            }
-            
-            if (!tessdataFound) {
-                throw new Exception("Tessdata directory not found. Tried paths: " + String.join(", ", possiblePaths));
-            }
-            
-            tesseract.setLanguage("eng");
-            tesseract.setPageSegMode(1);
-            tesseract.setOcrEngineMode(1);
+            ocrEngine = new OcrEngine(new OcrSettings());
+            System.out.println("Using tessdata path: " + ocrEngine.getTessdataPath());
             
             // Don't test OCR initialization to avoid dependency issues
             // The OCR will be tested when actually needed
-            System.out.println("OCR engine initialized successfully");
+            System.out.println("OCR engine initialized successfully (" + ocrEngine.getWorkerCount() + " workers)");
             
         } catch (Exception e) {
             System.err.println("Warning: Failed to initialize OCR engine: " + e.getMessage());
             System.err.println("OCR functionality will be disabled, but regular PDF text extraction will still work.");
-            tesseract = null;
+            ocrEngine = null;
         }
     }
     
@@ -282,127 +374,197 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
             "PDF Files", "pdf");
         fileChooser.setFileFilter(filter);
         
+        fileChooser.setMultiSelectionEnabled(true);
+        
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
-            processPDF(selectedFile);
+            for (File selectedFile : fileChooser.getSelectedFiles()) {
+                processPDF(selectedFile);
+            }
         }
     }
     
+    // Queues the file; the job list shows where it is
     private void processPDF(File pdfFile) {
-        SwingWorker<String, String> worker = new SwingWorker<String, String>() {
+        ExtractionJob job = jobQueue.submit(pdfFile, (ExtractionJob.Priority) priorityBox.getSelectedItem());
+        jobListModel.addElement(job);
+        // A new file replaces finished text, not text still coming in
+        if (displayedJob == null || displayedJob.isFinished()) {
+            displayJob(job);
+        }
+        statusLabel.setText("Queued: " + pdfFile.getName());
+    }
+    
+    private ExtractionJobQueue.Listener createJobListener() {
+        return new ExtractionJobQueue.Listener() {
             @Override
-            protected String doInBackground() throws Exception {
-                SwingUtilities.invokeLater(() -> {
-                    progressBar.setVisible(true);
-                    progressBar.setIndeterminate(true);
-                    progressBar.setString("Processing PDF...");
-                    statusLabel.setText("Extracting text from: " + pdfFile.getName());
-                    uploadButton.setEnabled(false);
-                });
-                
-                try {
-                    // Close previous document if open
-                    if (currentDocument != null) {
-                        currentDocument.close();
-                    }
-                    
-                    currentDocument = PDDocument.load(pdfFile);
-                    currentPageCount = currentDocument.getNumberOfPages();
-                    currentFileName = pdfFile.getName();
-                    
-                    publish("Processing " + currentPageCount + " pages...");
-                    
-                    // First, try to extract text directly
-                    String extractedText = extractTextDirectly();
-                    
-                    // If no text found, try OCR on each page
-                    if (extractedText == null || extractedText.trim().isEmpty()) {
-                        publish("No text found, using OCR on images...");
-                        extractedText = extractTextWithOCR();
-                    }
-                    
-                    return extractedText;
-                } catch (Exception e) {
-                    throw new Exception("Error processing PDF: " + e.getMessage());
+            public void jobChanged(ExtractionJob job) {
+                refreshJob(job);
+                if (job == displayedJob) {
+                    updateJobView();
+                }
+                if (job.getState() == ExtractionJob.State.FAILED) {
+                    showError("Failed to extract text from " + job.getName() + ": " + job.getError());
                 }
             }
             
             @Override
-            protected void process(List<String> chunks) {
-                for (String chunk : chunks) {
-                    statusLabel.setText(chunk);
+            public void pageExtracted(ExtractionJob job, PageResult page) {
+                refreshJob(job);
+                if (job == displayedJob) {
+                    appendNewPages();
+                    updateJobView();
                 }
             }
             
             @Override
-            protected void done() {
-                try {
-                    String result = get();
-                    textArea.setText(result);
-                    textArea.setForeground(Color.BLACK); // Set text color to black for actual content
-                    textArea.setCaretPosition(0);
-                    copyButton.setEnabled(true);
-                    saveButton.setEnabled(true);
-                    clearButton.setEnabled(true);
-                    pageInfoLabel.setText("Pages: " + currentPageCount + " | File: " + currentFileName);
-                    statusLabel.setText("Text extracted successfully from: " + currentFileName);
-                } catch (Exception e) {
-                    showError("Failed to extract text: " + e.getMessage());
-                    statusLabel.setText("Error extracting text");
-                    pageInfoLabel.setText("");
-                } finally {
-                    progressBar.setVisible(false);
-                    uploadButton.setEnabled(true);
+            public void ocrPageStarted(ExtractionJob job, int page) {
+                if (job == displayedJob) {
+                    statusLabel.setText("Running OCR on page " + (page + 1) + " of " + job.getPageCount() + "...");
                 }
             }
         };
-        
-        worker.execute();
     }
     
-    private String extractTextDirectly() {
-        try {
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setStartPage(1);
-            stripper.setEndPage(currentPageCount);
-            return stripper.getText(currentDocument);
-        } catch (Exception e) {
-            System.out.println("Direct text extraction failed: " + e.getMessage());
-            return null;
+    // Repaints the job's line in the list
+    private void refreshJob(ExtractionJob job) {
+        int index = jobListModel.indexOf(job);
+        if (index >= 0) {
+            jobListModel.set(index, job);
         }
+        updateJobButtons();
     }
     
-    private String extractTextWithOCR() {
-        if (tesseract == null) {
-            return "OCR not available - Tesseract not properly initialized";
+    private void displayJob(ExtractionJob job) {
+        displayedJob = job;
+        TextSpool spool = job.getSpool();
+        if (spool != null && spool.getPageCount() > 0) {
+            showWindow(0, spool.windowEnd(0, WINDOW_BYTES));
+        } else {
+            windowFirst = 0;
+            windowLast = 0;
+            textArea.setText("Waiting for the first page of " + job.getName() + "...");
+            textArea.setForeground(new Color(100, 100, 100));
+            updatePageNavigation();
         }
-        
-        StringBuilder fullText = new StringBuilder();
-        PDFRenderer renderer = new PDFRenderer(currentDocument);
-        
+        if (jobList.getSelectedValue() != job) {
+            jobList.setSelectedValue(job, true);
+        }
+        updateJobView();
+    }
+    
+    // Replaces the text area's contents with pages first to last of the displayed job
+    private void showWindow(int first, int last) {
         try {
-            for (int page = 0; page < currentPageCount; page++) {
-                // Note: Progress updates will be handled in the main SwingWorker
-                
-                // Render page as image
-                BufferedImage image = renderer.renderImageWithDPI(page, 300); // 300 DPI for better OCR
-                
-                // Extract text using OCR
-                String pageText = tesseract.doOCR(image);
-                fullText.append("--- Page ").append(page + 1).append(" ---\n");
-                fullText.append(pageText).append("\n\n");
+            String text = displayedJob.getSpool().readPages(first, last);
+            windowFirst = first;
+            windowLast = last;
+            textArea.setText(text);
+            textArea.setForeground(Color.BLACK); // Set text color to black for actual content
+            textArea.setCaretPosition(0);
+        } catch (IOException e) {
+            showError("Failed to read the extracted text: " + e.getMessage());
+        }
+        updatePageNavigation();
+    }
+    
+    // Adds pages that just finished to the end of the window while it has
+    // room, so a running job's text grows as it comes in
+    private void appendNewPages() {
+        TextSpool spool = displayedJob.getSpool();
+        int available = spool.getPageCount();
+        try {
+            if (windowLast == 0 && available > 0) {
+                textArea.setText("");
+                textArea.setForeground(Color.BLACK); // Set text color to black for actual content
             }
-        } catch (Exception e) {
-            return "OCR extraction failed: " + e.getMessage();
+            while (windowLast < available
+                   && (windowLast == windowFirst || spool.byteLength(windowFirst, windowLast + 1) <= WINDOW_BYTES)) {
+                textArea.append(spool.readPages(windowLast, windowLast + 1));
+                windowLast++;
+            }
+        } catch (IOException e) {
+            showError("Failed to read the extracted text: " + e.getMessage());
+        }
+        updatePageNavigation();
+    }
+    
+    private void updatePageNavigation() {
+        TextSpool spool = displayedJob == null ? null : displayedJob.getSpool();
+        int available = spool == null ? 0 : spool.getPageCount();
+        previousPagesButton.setEnabled(windowFirst > 0);
+        nextPagesButton.setEnabled(windowLast < available);
+        windowLabel.setText(available == 0 || (windowFirst == 0 && windowLast == available) ? ""
+                            : "Showing pages " + (windowFirst + 1) + "-" + windowLast + " of " + available);
+    }
+    
+    // Progress bar, labels and buttons for the displayed job
+    private void updateJobView() {
+        ExtractionJob job = displayedJob;
+        boolean hasText = job != null && job.getPagesDone() > 0;
+        copyButton.setEnabled(hasText && job.isFinished());
+        saveButton.setEnabled(hasText && job.isFinished());
+        clearButton.setEnabled(!jobListModel.isEmpty());
+        if (job == null) {
+            progressBar.setVisible(false);
+            pageInfoLabel.setText("");
+            return;
         }
         
-        return fullText.toString();
+        switch (job.getState()) {
+            case QUEUED:
+                progressBar.setVisible(false);
+                statusLabel.setText("Waiting in queue: " + job.getName());
+                break;
+            case RUNNING:
+                progressBar.setVisible(true);
+                progressBar.setIndeterminate(job.getPageCount() == 0);
+                progressBar.setMaximum(Math.max(1, job.getPageCount()));
+                progressBar.setValue(job.getPagesDone());
+                progressBar.setString(job.getPageCount() == 0 ? "Opening PDF..."
+                                      : job.getPagesDone() + " of " + job.getPageCount() + " pages");
+                if (job.getPagesDone() == 0) {
+                    statusLabel.setText("Extracting text from: " + job.getName());
+                }
+                break;
+            case DONE:
+                progressBar.setVisible(false);
+                statusLabel.setText("Text extracted successfully from: " + job.getName());
+                break;
+            case CANCELLED:
+                progressBar.setVisible(false);
+                statusLabel.setText("Cancelled: " + job.getName());
+                break;
+            default:
+                progressBar.setVisible(false);
+                statusLabel.setText("Error extracting text from: " + job.getName());
+        }
+        pageInfoLabel.setText(job.getPageCount() == 0 ? "File: " + job.getName()
+                              : "Pages: " + job.getPagesDone() + " of " + job.getPageCount() + " | File: " + job.getName());
+    }
+    
+    private void updateJobButtons() {
+        ExtractionJob job = jobList.getSelectedValue();
+        cancelButton.setEnabled(job != null && !job.isFinished());
+        runNextButton.setEnabled(job != null && job.getState() == ExtractionJob.State.QUEUED
+                                 && job.getPriority() != ExtractionJob.Priority.HIGH);
     }
     
+    // Copies the whole text of the displayed job, not just the pages shown.
+    // The clipboard takes a single string, so it is read from the spool here.
     private void copyToClipboard() {
-        String text = textArea.getText();
-        if (text != null && !text.trim().isEmpty()) {
+        TextSpool spool = displayedJob == null ? null : displayedJob.getSpool();
+        if (spool == null || spool.getPageCount() == 0) {
+            return;
+        }
+        String text;
+        try {
+            text = spool.readPages(0, spool.getPageCount());
+        } catch (IOException e) {
+            showError("Failed to read the extracted text: " + e.getMessage());
+            return;
+        }
+        if (!text.trim().isEmpty()) {
             StringSelection selection = new StringSelection(text);
             Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
             clipboard.setContents(selection, null);
@@ -416,21 +578,22 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
     }
     
     private void saveToFile() {
-        String text = textArea.getText();
-        if (text == null || text.trim().isEmpty()) {
+        TextSpool spool = displayedJob == null ? null : displayedJob.getSpool();
+        if (spool == null || spool.getPageCount() == 0) {
             JOptionPane.showMessageDialog(this, "No text to save", "Save Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
         
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Extracted Text");
-        fileChooser.setSelectedFile(new File(currentFileName.replace(".pdf", "_extracted.txt")));
+        fileChooser.setSelectedFile(new File(displayedJob.getName().replace(".pdf", "_extracted.txt")));
         
         int result = fileChooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
+            // Copied straight from the spool file, so the text is never held in memory
             try {
-                java.nio.file.Files.write(selectedFile.toPath(), text.getBytes());
+                spool.copyTo(selectedFile.toPath());
                 statusLabel.setText("Text saved to: " + selectedFile.getName());
                 
                 // Show temporary success message
@@ -443,24 +606,24 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
         }
     }
     
+    // Removes finished jobs from the list; queued and running jobs stay
     private void clearText() {
-        textArea.setText("Extracted text will appear here...\n\nDrag and drop a PDF file or click 'Upload PDF' to get started.");
-        textArea.setForeground(new Color(100, 100, 100)); // Restore placeholder color
-        copyButton.setEnabled(false);
-        saveButton.setEnabled(false);
-        clearButton.setEnabled(false);
-        pageInfoLabel.setText("");
-        statusLabel.setText("Text cleared");
-        
-        // Close current document
-        if (currentDocument != null) {
-            try {
-                currentDocument.close();
-                currentDocument = null;
-            } catch (IOException e) {
-                System.err.println("Error closing document: " + e.getMessage());
+        for (int i = jobListModel.size() - 1; i >= 0; i--) {
+            if (jobListModel.get(i).isFinished()) {
+                jobListModel.remove(i).close();
             }
         }
+        if (displayedJob != null && displayedJob.isFinished()) {
+            displayedJob = null;
+            windowFirst = 0;
+            windowLast = 0;
+            updatePageNavigation();
+            textArea.setText("Extracted text will appear here...\n\nDrag and drop a PDF file or click 'Upload PDF' to get started.");
+            textArea.setForeground(new Color(100, 100, 100)); // Restore placeholder color
+        }
+        updateJobView();
+        updateJobButtons();
+        statusLabel.setText("Text cleared");
         
         // Reset status after 2 seconds
         Timer timer = new Timer(2000, e -> statusLabel.setText("Ready"));
@@ -543,14 +706,16 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
                 @SuppressWarnings("unchecked")
                 java.util.List<File> files = (java.util.List<File>) dtde.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
                 
-                if (files.size() > 0) {
-                    File file = files.get(0);
+                boolean queued = false;
+                for (File file : files) {
                     if (isPDFFile(file)) {
                         processPDF(file);
-                    } else {
-                        showError("Please drop a PDF file (.pdf)");
+                        queued = true;
                     }
                 }
+                if (!files.isEmpty() && !queued) {
+                    showError("Please drop a PDF file (.pdf)");
+                }
                 
                 dtde.dropComplete(true);
             } else {
@@ -569,19 +734,18 @@ public class PDFTextExtractor extends JFrame implements DropTargetListener {
     }
     
     private boolean isPDFFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".pdf");
+        return DocumentLoader.isPdf(file);
     }
     
     @Override
     public void dispose() {
-        // Clean up resources
-        if (currentDocument != null) {
-            try {
-                currentDocument.close();
-            } catch (IOException e) {
-                System.err.println("Error closing document: " + e.getMessage());
-            }
+        // Clean up resources; each job closes its own document
+        jobQueue.shutdown();
+        for (int i = 0; i < jobListModel.size(); i++) {
+            jobListModel.get(i).close();
+        }
+        if (ocrEngine != null) {
+            ocrEngine.close();
         }
         super.dispose();
     }
@@ -0,0 +1,142 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// The text of one job, page by page, in a temporary file. Only the pages on
+// screen are read back into memory, so a result of hundreds of megabytes
+// costs the GUI no more heap than a short one. Pages are appended by the
+// job's thread and read by the Swing thread.
+public class TextSpool implements AutoCloseable {
+    
+    private final Path file;
+    private final FileChannel channel;
+    // Byte offset of every page, and of the end of the last one
+    private long[] offsets = new long[64];
+    private int pageCount;
+    
+    public TextSpool() throws IOException {
+        file = Files.createTempFile("pdftotext-", ".txt");
+        file.toFile().deleteOnExit();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    public synchronized void appendPage(String text) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+        long position = offsets[pageCount];
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+        if (pageCount + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++pageCount] = position;
+    }
+    
+    public synchronized int getPageCount() {
+        return pageCount;
+    }
+    
+    public synchronized long getByteLength() {
+        return offsets[pageCount];
+    }
+    
+    // Bytes taken by pages first (inclusive) to last (exclusive)
+    public synchronized long byteLength(int first, int last) {
+        return offsets[last] - offsets[first];
+    }
+    
+    // The last page (exclusive) of a window that starts at first and holds
+    // at most maxBytes, but always at least one page when there is one
+    public synchronized int windowEnd(int first, long maxBytes) {
+        int last = Math.min(first + 1, pageCount);
+        while (last < pageCount && offsets[last + 1] - offsets[first] <= maxBytes) {
+            last++;
+        }
+        return last;
+    }
+    
+    // The first page of a window that ends at last (exclusive), the mirror of windowEnd
+    public synchronized int windowStart(int last, long maxBytes) {
+        int first = Math.max(last - 1, 0);
+        while (first > 0 && offsets[last] - offsets[first - 1] <= maxBytes) {
+            first--;
+        }
+        return first;
+    }
+    
+    public String readPages(int first, int last) throws IOException {
+        long start;
+        int length;
+        synchronized (this) {
+            start = offsets[first];
+            length = (int) (offsets[last] - start);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                throw new IOException("Text spool truncated: " + file);
+            }
+        }
+        bytes.flip();
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+    
+    // Everything appended so far, read from the file as it is consumed
+    public InputStream openStream() throws IOException {
+        long length = getByteLength();
+        FileChannel reader = FileChannel.open(file, StandardOpenOption.READ);
+        return new FilterInputStream(Channels.newInputStream(reader)) {
+            private long remaining = length;
+            
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(buffer, offset, (int) Math.min(count, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+    
+    public void copyTo(Path target) throws IOException {
+        try (InputStream in = openStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    // Deletes the file
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Error deleting text spool " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// Writes ALTO v4 XML with one Page per page, a TextBlock holding its lines
+// and a String per word with its position and, for OCR words, WC.
+// Positions are in 1/1200 inch, ALTO's "inch1200" unit.
+public class AltoPageWriter implements PageSink {
+    
+    private static final float UNITS_PER_POINT = 1200f / 72f;
+    
+    private final Writer out;
+    private boolean started;
+    private int lineId;
+    private int wordId;
+    
+    public AltoPageWriter(Writer out) {
+        this.out = out;
+    }
+    
+    @Override
+    public boolean wantsWords() {
+        return true;
+    }
+    
+    private void start() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                  + "<alto xmlns=\"http://www.loc.gov/standards/alto/ns-v4#\">\n"
+                  + "  <Description>\n"
+                  + "    <MeasurementUnit>inch1200</MeasurementUnit>\n"
+                  + "  </Description>\n"
+                  + "  <Layout>\n");
+    }
+    
+    @Override
+    public void pageExtracted(PageResult page) throws IOException {
+        start();
+        int number = page.getPageNumber();
+        long width = units(page.getWidth());
+        long height = units(page.getHeight());
+        StringBuilder xml = new StringBuilder();
+        xml.append("    <Page ID=\"page_").append(number).append("\" PHYSICAL_IMG_NR=\"").append(number)
+            .append("\" WIDTH=\"").append(width).append("\" HEIGHT=\"").append(height).append("\">\n")
+            .append("      <PrintSpace HPOS=\"0\" VPOS=\"0\" WIDTH=\"").append(width)
+            .append("\" HEIGHT=\"").append(height).append("\">\n");
+        
+        List<WordBox> words = page.getWords();
+        if (words != null && !words.isEmpty()) {
+            xml.append("        <TextBlock ID=\"block_").append(number).append("\">\n");
+            for (List<WordBox> line : WordBox.groupLines(words)) {
+                xml.append("          <TextLine ID=\"line_").append(++lineId).append('"');
+                appendPosition(xml, HocrPageWriter.lineBox(line));
+                xml.append(">\n");
+                for (int i = 0; i < line.size(); i++) {
+                    WordBox word = line.get(i);
+                    if (i > 0) {
+                        xml.append("            <SP/>\n");
+                    }
+                    xml.append("            <String ID=\"string_").append(++wordId)
+                        .append("\" CONTENT=\"").append(Xml.escape(word.getText())).append('"');
+                    appendPosition(xml, word);
+                    if (word.hasConfidence()) {
+                        xml.append(" WC=\"").append(Json.number(word.getConfidence() / 100)).append('"');
+                    }
+                    xml.append("/>\n");
+                }
+                xml.append("          </TextLine>\n");
+            }
+            xml.append("        </TextBlock>\n");
+        }
+        xml.append("      </PrintSpace>\n    </Page>\n");
+        
+        out.write(xml.toString());
+        out.flush();
+    }
+    
+    private static void appendPosition(StringBuilder xml, WordBox box) {
+        xml.append(" HPOS=\"").append(units(box.getLeft()))
+            .append("\" VPOS=\"").append(units(box.getTop()))
+            .append("\" WIDTH=\"").append(units(box.getRight() - box.getLeft()))
+            .append("\" HEIGHT=\"").append(units(box.getBottom() - box.getTop())).append('"');
+    }
+    
+    private static long units(float points) {
+        return Math.round(points * UNITS_PER_POINT);
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        start();
+        out.write("  </Layout>\n</alto>\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,119 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.pdfbox.io.RandomAccessRead;
+
+// Lets the PDF parser read straight out of a ByteBuffer: a memory-mapped
+// file, where reads come from the page cache without going through a file
+// stream and its buffer, or a PDF that is already in memory. Like PDFBox's
+// own readers, an instance is only used by the document it was opened for.
+public class ByteBufferRandomAccessRead implements RandomAccessRead {
+    
+    // The position is the read position; null once closed
+    private ByteBuffer buffer;
+    
+    // Reads from the buffer's position to its limit, without changing them
+    public ByteBufferRandomAccessRead(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+    
+    private ByteBuffer buffer() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Reader already closed");
+        }
+        return buffer;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        ByteBuffer data = buffer();
+        return data.hasRemaining() ? data.get() & 0xff : -1;
+    }
+    
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+    
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException {
+        ByteBuffer data = buffer();
+        if (length == 0) {
+            return 0;
+        }
+        if (!data.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, data.remaining());
+        data.get(b, offset, count);
+        return count;
+    }
+    
+    @Override
+    public long getPosition() throws IOException {
+        return buffer().position();
+    }
+    
+    // Seeking past the end leaves the reader at the end, where reads return -1
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0) {
+            throw new IOException("Invalid position " + position);
+        }
+        ByteBuffer data = buffer();
+        data.position((int) Math.min(position, data.limit()));
+    }
+    
+    @Override
+    public long length() throws IOException {
+        return buffer().limit();
+    }
+    
+    @Override
+    public boolean isClosed() {
+        return buffer == null;
+    }
+    
+    @Override
+    public int peek() throws IOException {
+        ByteBuffer data = buffer();
+        return data.hasRemaining() ? data.get(data.position()) & 0xff : -1;
+    }
+    
+    @Override
+    public void rewind(int bytes) throws IOException {
+        ByteBuffer data = buffer();
+        if (bytes > data.position()) {
+            throw new IOException("Cannot rewind " + bytes + " bytes from position " + data.position());
+        }
+        data.position(data.position() - bytes);
+    }
+    
+    @Override
+    public byte[] readFully(int length) throws IOException {
+        ByteBuffer data = buffer();
+        if (length > data.remaining()) {
+            throw new IOException("Premature end of buffer: " + length + " bytes wanted, " + data.remaining() + " left");
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return bytes;
+    }
+    
+    @Override
+    public boolean isEOF() throws IOException {
+        return !buffer().hasRemaining();
+    }
+    
+    @Override
+    public int available() throws IOException {
+        return buffer().remaining();
+    }
+    
+    // A mapped file stays mapped until the buffer is garbage collected
+    @Override
+    public void close() {
+        buffer = null;
+    }
+}
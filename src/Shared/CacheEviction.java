@@ -0,0 +1,55 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Least recently used eviction for the on-disk caches. An entry's modification
+// time is its last use: the caches refresh it on every hit.
+public final class CacheEviction {
+    
+    private CacheEviction() {
+    }
+    
+    // Deletes the oldest entries ending in suffix until the rest fit in
+    // maxBytes; returns how many were deleted
+    public static int evict(Path directory, String suffix, long maxBytes) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long totalBytes = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+                totalBytes += Files.size(entry);
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return 0;
+        }
+        
+        int evicted = 0;
+        entries.sort(Comparator.comparingLong(CacheEviction::lastModified));
+        for (Path entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (Files.deleteIfExists(entry)) {
+                totalBytes -= size;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+    
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
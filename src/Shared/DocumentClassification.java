@@ -0,0 +1,110 @@
+package pdftotext;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+// The pre-flight classification of every page of a document, for routing
+// jobs before anything is extracted: text-only documents to cheap stripping
+// workers, scans to OCR capacity. Classifying costs one pass over each
+// content stream, without loading fonts, decoding images or stripping text.
+public class DocumentClassification {
+    
+    public enum Type {
+        TEXT("text"),
+        SCANNED("scanned"),
+        MIXED("mixed"),
+        BLANK("blank");
+        
+        private final String label;
+        
+        Type(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    // null for pages whose content could not be read
+    private final PageClassification.Strategy[] strategies;
+    private int textLayerPages;
+    private int ocrPages;
+    private int blankPages;
+    private int unreadablePages;
+    
+    private DocumentClassification(int pageCount) {
+        strategies = new PageClassification.Strategy[pageCount];
+    }
+    
+    public static DocumentClassification classify(PDDocument document) {
+        DocumentClassification result = new DocumentClassification(document.getNumberOfPages());
+        for (int page = 0; page < result.strategies.length; page++) {
+            try {
+                result.add(page, PageClassification.classify(document.getPage(page)).getStrategy());
+            } catch (Exception e) {
+                result.unreadablePages++;
+            }
+        }
+        return result;
+    }
+    
+    private void add(int page, PageClassification.Strategy strategy) {
+        strategies[page] = strategy;
+        switch (strategy) {
+            case TEXT_LAYER:
+                textLayerPages++;
+                break;
+            case OCR:
+                ocrPages++;
+                break;
+            default:
+                blankPages++;
+        }
+    }
+    
+    public int getPageCount() {
+        return strategies.length;
+    }
+    
+    // The strategy for a 0-based page, or null if its content could not be read
+    public PageClassification.Strategy getStrategy(int page) {
+        return strategies[page];
+    }
+    
+    public int getTextLayerPages() {
+        return textLayerPages;
+    }
+    
+    public int getOcrPages() {
+        return ocrPages;
+    }
+    
+    public int getBlankPages() {
+        return blankPages;
+    }
+    
+    public int getUnreadablePages() {
+        return unreadablePages;
+    }
+    
+    public Type getType() {
+        if (ocrPages == 0 && textLayerPages == 0) {
+            return Type.BLANK;
+        }
+        if (ocrPages == 0) {
+            return Type.TEXT;
+        }
+        return textLayerPages == 0 ? Type.SCANNED : Type.MIXED;
+    }
+    
+    // One JSON object on one line
+    public String toJson(String document) {
+        return "{\"document\": " + Json.quote(document)
+               + ", \"type\": " + Json.quote(getType().getLabel())
+               + ", \"pages\": " + getPageCount()
+               + ", \"textLayerPages\": " + textLayerPages
+               + ", \"ocrPages\": " + ocrPages
+               + ", \"blankPages\": " + blankPages
+               + ", \"unreadablePages\": " + unreadablePages + "}";
+    }
+}
@@ -0,0 +1,680 @@
+package pdftotext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+// Extracts a document page by page: pages with a usable text layer are taken
+// from PDFTextStripper and only the remaining pages are sent to OCR, so mixed
+// documents (a typed cover letter followed by scans) come out complete.
+// Pages are handed to a PageSink in order as soon as they are ready, and only
+// a bounded window of pages is ever held in memory.
+public class DocumentExtractor {
+    
+    private static final String OCR_UNAVAILABLE_TEXT = "OCR not available - Tesseract not properly initialized";
+    // A document gets one more stripping thread per this many pages with a
+    // text layer; below that, loading another copy costs more than it saves
+    private static final int MIN_PAGES_PER_PRODUCER = 64;
+    // Rendering a page costs far more than stripping it, so rendering threads
+    // pay for their copy of the document sooner
+    private static final int MIN_PAGES_PER_RENDERER = 8;
+    // Producers take this many consecutive pages at a time, so each copy of
+    // the document reuses the fonts it has parsed for neighbouring pages
+    private static final int CHUNK_PAGES = 16;
+    
+    private final OcrEngine ocrEngine;
+    private final DocumentLoader documentLoader = new DocumentLoader();
+    private final StageStats stripStats = new StageStats("strip");
+    private final ExtractionMetrics metrics;
+    private int minTextChars = Integer.getInteger("pdftotext.minTextChars", 10);
+    private PageSelection pageSelection = new PageSelection();
+    private PageCache pageCache;
+    private boolean preflight = !Boolean.getBoolean("pdftotext.noPreflight");
+    private int stripThreadCount = Integer.getInteger("pdftotext.stripThreads", Runtime.getRuntime().availableProcessors());
+    // Runs the extra producers of large documents; idle threads time out
+    private final ExecutorService producerThreads = Executors.newCachedThreadPool(new NamedThreadFactory("page-producer"));
+    // Documents open at once beyond the ones being extracted: each extra
+    // producer's copy takes a permit and is not loaded when none is left.
+    // Batch extraction takes one for every document it opens, so copies only
+    // come out of what the batch leaves unused.
+    private int maxOpenDocuments = Integer.getInteger("pdftotext.maxOpenDocuments", Runtime.getRuntime().availableProcessors());
+    private Semaphore openDocuments = new Semaphore(maxOpenDocuments);
+    
+    // ocrEngine may be null when Tesseract is not available
+    public DocumentExtractor(OcrEngine ocrEngine) {
+        this.ocrEngine = ocrEngine;
+        if (ocrEngine == null) {
+            metrics = new ExtractionMetrics(documentLoader.getLoadStats(), stripStats);
+        } else {
+            metrics = new ExtractionMetrics(documentLoader.getLoadStats(), stripStats, ocrEngine.getRenderStats(),
+                                            ocrEngine.getDecodeStats(), ocrEngine.getDetectionStats(),
+                                            ocrEngine.getOcrStats());
+            metrics.setOcrEngine(ocrEngine);
+        }
+    }
+    
+    public ExtractionMetrics getMetrics() {
+        return metrics;
+    }
+    
+    // Settings for every PDDocument opened for an extraction
+    public DocumentLoader getDocumentLoader() {
+        return documentLoader;
+    }
+    
+    public int getMinTextChars() {
+        return minTextChars;
+    }
+    
+    // Pages with fewer non-whitespace characters than this are treated as scanned
+    public void setMinTextChars(int minTextChars) {
+        if (minTextChars < 1) {
+            throw new IllegalArgumentException("Minimum text characters must be at least 1: " + minTextChars);
+        }
+        this.minTextChars = minTextChars;
+    }
+    
+    public int getStripThreadCount() {
+        return stripThreadCount;
+    }
+    
+    // Threads that strip a large document at once, each on its own copy of it
+    public void setStripThreadCount(int stripThreadCount) {
+        if (stripThreadCount < 1) {
+            throw new IllegalArgumentException("Strip thread count must be at least 1: " + stripThreadCount);
+        }
+        this.stripThreadCount = stripThreadCount;
+    }
+    
+    public int getMaxOpenDocuments() {
+        return maxOpenDocuments;
+    }
+    
+    // Only to be changed before the first extraction
+    public void setMaxOpenDocuments(int maxOpenDocuments) {
+        if (maxOpenDocuments < 1) {
+            throw new IllegalArgumentException("Maximum open documents must be at least 1: " + maxOpenDocuments);
+        }
+        this.maxOpenDocuments = maxOpenDocuments;
+        this.openDocuments = new Semaphore(maxOpenDocuments);
+    }
+    
+    // Shared by extra document copies and callers that open many documents
+    // at once, so together they stay within getMaxOpenDocuments
+    public Semaphore getOpenDocuments() {
+        return openDocuments;
+    }
+    
+    public PageSelection getPageSelection() {
+        return pageSelection;
+    }
+    
+    // The pages extract() takes when no selection is passed to it
+    public void setPageSelection(PageSelection pageSelection) {
+        this.pageSelection = pageSelection;
+    }
+    
+    public PageCache getPageCache() {
+        return pageCache;
+    }
+    
+    // Reuses pages whose fingerprint was extracted before; null to always extract
+    public void setPageCache(PageCache pageCache) {
+        this.pageCache = pageCache;
+        metrics.setPageCache(pageCache);
+    }
+    
+    public boolean isPreflight() {
+        return preflight;
+    }
+    
+    // Classifies each page from its content stream before stripping it, so
+    // pages without text operators go straight to OCR and blank pages are
+    // neither stripped nor OCRed
+    public void setPreflight(boolean preflight) {
+        this.preflight = preflight;
+    }
+    
+    // Everything that changes the extracted text; used in cache keys
+    public String getSettingsKey() {
+        return getPageSettingsKey() + ";" + pageSelection.getCacheKey();
+    }
+    
+    // Everything that changes the text of a single page
+    private String getPageSettingsKey() {
+        return (ocrEngine == null ? "ocr=none" : ocrEngine.getSettings().getCacheKey()) + ";minTextChars=" + minTextChars
+               + ";preflight=" + preflight;
+    }
+    
+    public List<PageResult> extractPages(PDDocument document, File source, IntConsumer ocrPageStarted) throws IOException {
+        List<PageResult> pages = new ArrayList<>();
+        extract(document, source, pages::add, ocrPageStarted);
+        return pages;
+    }
+    
+    public int extract(PDDocument document, File source, PageSink sink, IntConsumer ocrPageStarted) throws IOException {
+        return extract(document, source, pageSelection, sink, ocrPageStarted);
+    }
+    
+    // Extracts only the selected pages and stops early when the selection's
+    // budget runs out; the pages that were extracted are still complete.
+    // Throws CancellationException when the sink asks to cancel. Returns the
+    // number of pages OCR failed on, whose text is the error instead; output
+    // with such pages must not be cached.
+    public int extract(PDDocument document, File source, PageSelection selection, PageSink sink,
+                       IntConsumer ocrPageStarted) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean collectWords = sink.wantsWords();
+        PageSink counted = new PageSink() {
+            @Override
+            public void pageExtracted(PageResult page) throws IOException {
+                metrics.recordPage(page);
+                sink.pageExtracted(page);
+            }
+            
+            @Override
+            public boolean isCancelled() {
+                return sink.isCancelled();
+            }
+        };
+        try {
+            Extraction extraction = new Extraction(document, source, selection, counted, collectWords, ocrPageStarted, start);
+            extraction.run();
+            failed = false;
+            reportRevisions(source, extraction);
+            return extraction.getFailedPages();
+        } catch (CancellationException e) {
+            // Stopped on request, which is not a failure of the document
+            failed = false;
+            throw e;
+        } finally {
+            metrics.recordDocument(source == null ? "(unnamed)" : source.getPath(), source == null ? 0 : source.length(),
+                                   document.getNumberOfPages(), System.nanoTime() - start, failed);
+        }
+    }
+    
+    // Incrementally updated files are what the page cache is for, so say how
+    // much of such a file had to be extracted again
+    private void reportRevisions(File source, Extraction extraction) {
+        if (pageCache == null || source == null) {
+            return;
+        }
+        try {
+            int revisions = PdfRevisions.count(source);
+            if (revisions > 1) {
+                metrics.recordUpdatedDocument();
+                System.out.println(source.getName() + " has " + revisions + " revisions: "
+                                   + (extraction.getPageCount() - extraction.getCachedPages()) + " of "
+                                   + extraction.getPageCount() + " pages extracted, the rest taken from the page cache");
+            }
+        } catch (IOException e) {
+            // Only informational
+        }
+    }
+    
+    // The crop box turned the way the page is shown, which is the space both
+    // PDFTextStripper's positions and rendered images are in
+    private static PDRectangle displayedSize(PDPage page) {
+        PDRectangle box = page.getCropBox();
+        if (page.getRotation() % 180 != 0) {
+            return new PDRectangle(box.getHeight(), box.getWidth());
+        }
+        return box;
+    }
+    
+    // The text layer of one 0-based page, or null when stripping fails
+    public String extractTextDirectly(PDFTextStripper stripper, PDDocument document, int page) {
+        long start = System.nanoTime();
+        try {
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            String text = stripper.getText(document);
+            stripStats.recordPage(System.nanoTime() - start);
+            return text;
+        } catch (Exception e) {
+            System.out.println("Direct text extraction failed on page " + (page + 1) + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private boolean hasTextLayer(String text) {
+        if (text == null) {
+            return false;
+        }
+        int chars = 0;
+        for (int i = 0; i < text.length() && chars < minTextChars; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                chars++;
+            }
+        }
+        return chars >= minTextChars;
+    }
+    
+    // One run over a document. Producers take the next few selected pages,
+    // strip them and either emit each page directly or render it and submit a
+    // recognition task to the engine's shared work-stealing pool. Large
+    // documents get several producers, each with its own copy of the document.
+    // A producer must get a window permit for every page it takes and the
+    // permit is returned when the page is emitted, so at most `window` pages
+    // (text or images) are held at once. Permits are taken in page order,
+    // which means the oldest unfinished page is always being worked on and the
+    // window cannot deadlock. A separate `queued` limit caps rendered images
+    // that are waiting for OCR, and `rendering` the pages rendered at once.
+    // When the budget runs out, pages not yet emitted are dropped and the run
+    // ends.
+    private class Extraction {
+        
+        private final PDDocument document;
+        private final File source;
+        private final PageSelection selection;
+        private final PageSink sink;
+        private final boolean collectWords;
+        private final IntConsumer ocrPageStarted;
+        private final long started;
+        // 0-based page indexes; positions in this array are what producers
+        // take and what is emitted in order
+        private final int[] pages;
+        // By position; null where the page has not been classified yet
+        private final PageClassification.Strategy[] strategies;
+        private final int pageCount;
+        private final int producers;
+        private final int chunkPages;
+        // Positions from here on are not extracted; lowered when the budget runs out
+        private volatile int end;
+        private volatile long emittedChars;
+        private final AtomicInteger cachedPages = new AtomicInteger();
+        private final AtomicInteger failedPages = new AtomicInteger();
+        private final Object claimLock = new Object();
+        private int nextPage;
+        private final Semaphore window;
+        private final Semaphore queued;
+        private final Semaphore rendering;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Map<Integer, PageResult> pending = new HashMap<>();
+        private int nextToEmit;
+        
+        Extraction(PDDocument document, File source, PageSelection selection, PageSink sink, boolean collectWords,
+                   IntConsumer ocrPageStarted, long started) {
+            this.document = document;
+            this.source = source;
+            this.selection = selection;
+            this.sink = sink;
+            this.collectWords = collectWords;
+            this.ocrPageStarted = ocrPageStarted;
+            this.started = started;
+            this.pages = selection.selectPages(document.getNumberOfPages());
+            this.pageCount = pages.length;
+            this.end = pageCount;
+            this.strategies = new PageClassification.Strategy[pageCount];
+            
+            // A PDDocument must not be shared between threads, so extra
+            // producers load their own copy from the source file
+            this.producers = source == null ? 1 : producerCount();
+            this.chunkPages = Math.max(1, Math.min(CHUNK_PAGES, pageCount / producers));
+            
+            int inFlight = 0;
+            if (ocrEngine != null) {
+                OcrSettings settings = ocrEngine.getSettings();
+                inFlight = settings.getQueueDepth() + settings.getWorkerCount();
+                this.queued = new Semaphore(settings.getQueueDepth());
+                this.rendering = new Semaphore(settings.getRenderThreadCount());
+            } else {
+                this.queued = null;
+                this.rendering = null;
+            }
+            this.window = new Semaphore(inFlight + producers * chunkPages);
+        }
+        
+        // One producer per MIN_PAGES_PER_PRODUCER pages to strip and per
+        // MIN_PAGES_PER_RENDERER pages to render. With preflight on, pages are
+        // classified first, so scans add no stripping producers and blank
+        // pages add none at all. Classifying stops once there are enough
+        // pages of both kinds for every thread.
+        private int producerCount() {
+            int maxStrippers = stripThreadCount;
+            int maxRenderers = ocrEngine == null ? 0 : ocrEngine.getSettings().getRenderThreadCount();
+            int textPages = pageCount;
+            int ocrPages = ocrEngine == null ? 0 : pageCount;
+            boolean worthCopying = pageCount >= 2 * (ocrEngine == null ? MIN_PAGES_PER_PRODUCER : MIN_PAGES_PER_RENDERER);
+            if (preflight && worthCopying) {
+                textPages = 0;
+                ocrPages = 0;
+                for (int position = 0; position < pageCount; position++) {
+                    if (textPages >= maxStrippers * MIN_PAGES_PER_PRODUCER
+                        && ocrPages >= maxRenderers * MIN_PAGES_PER_RENDERER) {
+                        break;
+                    }
+                    try {
+                        strategies[position] = PageClassification.classify(document.getPage(pages[position])).getStrategy();
+                    } catch (IOException | RuntimeException e) {
+                        // Classified again, and reported, by the producer
+                        continue;
+                    }
+                    if (strategies[position] == PageClassification.Strategy.TEXT_LAYER) {
+                        textPages++;
+                    } else if (strategies[position] == PageClassification.Strategy.OCR) {
+                        ocrPages++;
+                    }
+                }
+            }
+            int strippers = Math.min(maxStrippers, textPages / MIN_PAGES_PER_PRODUCER);
+            int renderers = Math.min(maxRenderers, ocrPages / MIN_PAGES_PER_RENDERER);
+            return Math.max(1, Math.max(strippers, renderers));
+        }
+        
+        int getPageCount() {
+            return pageCount;
+        }
+        
+        int getCachedPages() {
+            return cachedPages.get();
+        }
+        
+        int getFailedPages() {
+            return failedPages.get();
+        }
+        
+        void run() throws IOException {
+            List<Future<?>> extraProducers = new ArrayList<>();
+            if (pageCount == 0) {
+                finished.countDown();
+            }
+            
+            try {
+                for (int p = 1; p < producers; p++) {
+                    if (!openDocuments.tryAcquire()) {
+                        // The rest of the pages go to the producers there are
+                        metrics.recordSkippedDocumentCopies(producers - p);
+                        break;
+                    }
+                    Semaphore permits = openDocuments;
+                    extraProducers.add(producerThreads.submit(() -> {
+                        try (PDDocument copy = documentLoader.load(source)) {
+                            metrics.recordDocumentCopy();
+                            producePages(copy);
+                        } catch (Throwable e) {
+                            fail(e);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                try {
+                    producePages(document);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+                ManagedBlocking.await(finished);
+                
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } finally {
+                for (Future<?> producer : extraProducers) {
+                    producer.cancel(true);
+                }
+            }
+            
+            Throwable cause = failure.get();
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause != null) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+        
+        private void producePages(PDDocument doc) throws IOException, InterruptedException {
+            WordCollectingStripper stripper = new WordCollectingStripper(collectWords);
+            PDFRenderer renderer = ocrEngine == null ? null : new PDFRenderer(doc);
+            PageFingerprinter fingerprinter = pageCache == null ? null : new PageFingerprinter();
+            while (true) {
+                // The permits for a chunk are taken together with the chunk,
+                // so they are handed out in page order
+                int first;
+                int last;
+                synchronized (claimLock) {
+                    first = nextPage;
+                    if (first >= end || failure.get() != null) {
+                        return;
+                    }
+                    last = Math.min(first + chunkPages, pageCount);
+                    ManagedBlocking.acquire(window, last - first);
+                    nextPage = last;
+                }
+                
+                for (int position = first; position < last; position++) {
+                    if (position >= end || failure.get() != null) {
+                        break;
+                    }
+                    if (selection.isExhausted(emittedChars, started)) {
+                        stop();
+                        break;
+                    }
+                    if (sink.isCancelled()) {
+                        cancel();
+                        break;
+                    }
+                    producePage(doc, stripper, renderer, fingerprinter, position);
+                }
+            }
+        }
+        
+        private void producePage(PDDocument doc, WordCollectingStripper stripper, PDFRenderer renderer,
+                                 PageFingerprinter fingerprinter, int position) throws IOException, InterruptedException {
+            int page = pages[position];
+            String cacheKey = null;
+            if (fingerprinter != null) {
+                try {
+                    cacheKey = pageCache.key(fingerprinter.fingerprint(doc.getPage(page)), getPageSettingsKey());
+                } catch (IOException e) {
+                    // A stream that cannot be read; extract without the cache
+                }
+                PageResult cached = cacheKey == null ? null : pageCache.get(cacheKey, page + 1, collectWords);
+                if (cached != null) {
+                    cachedPages.incrementAndGet();
+                    emit(position, cached);
+                    return;
+                }
+            }
+            
+            PageClassification classification = null;
+            PageClassification.Strategy strategy = strategies[position];
+            // Pages to OCR are classified again on this producer's document,
+            // whose images the renderer is given
+            if (preflight && (strategy == null || strategy == PageClassification.Strategy.OCR)) {
+                try {
+                    classification = PageClassification.classify(doc.getPage(page));
+                    strategy = classification.getStrategy();
+                } catch (IOException | RuntimeException e) {
+                    // Left to the stripper, which reports what is wrong with the page
+                    strategy = null;
+                }
+            }
+            PDRectangle size = displayedSize(doc.getPage(page));
+            if (strategy == PageClassification.Strategy.BLANK) {
+                PageResult result = new PageResult(page + 1, "", ExtractionMethod.BLANK, size.getWidth(), size.getHeight(),
+                                                   collectWords ? new ArrayList<>() : null);
+                if (cacheKey != null) {
+                    pageCache.put(cacheKey, result);
+                }
+                emit(position, result);
+                return;
+            }
+            if (strategy == null || strategy == PageClassification.Strategy.TEXT_LAYER) {
+                String text = extractTextDirectly(stripper, doc, page);
+                List<WordBox> words = stripper.takeWords();
+                if (hasTextLayer(text)) {
+                    PageResult result = new PageResult(page + 1, text, ExtractionMethod.TEXT_LAYER,
+                                                       size.getWidth(), size.getHeight(), words);
+                    if (cacheKey != null) {
+                        pageCache.put(cacheKey, result);
+                    }
+                    emit(position, result);
+                    return;
+                }
+            }
+            if (ocrEngine == null) {
+                emit(position, new PageResult(page + 1, OCR_UNAVAILABLE_TEXT, ExtractionMethod.OCR_UNAVAILABLE,
+                                              size.getWidth(), size.getHeight(), null));
+                return;
+            }
+            if (position >= end) {
+                // The budget ran out while this page was stripped
+                return;
+            }
+            
+            // Tesseract is only loaded once a page needs it, and then while
+            // this page is being rendered
+            ocrEngine.warmUpAsync();
+            if (ocrPageStarted != null) {
+                ocrPageStarted.accept(page);
+            }
+            // The render permit is held until the image is queued, so only
+            // that many rendered images wait in producers
+            ManagedBlocking.acquire(rendering);
+            try {
+                // The images found while classifying are not looked for again
+                PageImage image = classification == null ? ocrEngine.renderPage(doc, renderer, page)
+                                  : ocrEngine.renderPage(doc, renderer, page, classification.getContent());
+                long start = System.nanoTime();
+                boolean permit = false;
+                boolean handedOff = false;
+                try {
+                    ManagedBlocking.acquire(queued);
+                    permit = true;
+                    long submitted = System.nanoTime();
+                    ocrEngine.getRenderStats().recordWait(submitted - start);
+                    String key = cacheKey;
+                    ocrEngine.getWorkers().execute(() -> recognizePage(position, page, image, size, key, submitted));
+                    handedOff = true;
+                } finally {
+                    // Once handed off, recognizePage gives both back; a
+                    // cancelled producer is interrupted while waiting here
+                    if (!handedOff) {
+                        image.release();
+                        if (permit) {
+                            queued.release();
+                        }
+                    }
+                }
+            } finally {
+                rendering.release();
+            }
+        }
+        
+        // cacheKey is null when the page is not to be cached
+        private void recognizePage(int position, int page, PageImage image, PDRectangle size, String cacheKey,
+                                   long submitted) {
+            try {
+                ocrEngine.getOcrStats().recordWait(System.nanoTime() - submitted);
+                if (failure.get() != null || position >= end) {
+                    return;
+                }
+                if (sink.isCancelled()) {
+                    cancel();
+                    return;
+                }
+                
+                List<WordBox> words = collectWords ? new ArrayList<>() : null;
+                PageResult result;
+                try {
+                    String text = ocrEngine.ocrImage(image, words);
+                    result = new PageResult(page + 1, text, ExtractionMethod.OCR, size.getWidth(), size.getHeight(), words);
+                    if (cacheKey != null) {
+                        pageCache.put(cacheKey, result);
+                    }
+                } catch (TesseractException e) {
+                    // Not cached, so the page is tried again next time
+                    metrics.recordOcrFailure();
+                    failedPages.incrementAndGet();
+                    result = new PageResult(page + 1, "OCR extraction failed: " + e.getMessage(), ExtractionMethod.OCR,
+                                            size.getWidth(), size.getHeight(), null);
+                }
+                emit(position, result);
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                // Back to the pool for a page further on, recognized or not
+                image.release();
+                queued.release();
+            }
+        }
+        
+        private synchronized void emit(int position, PageResult result) throws IOException {
+            if (position >= end || failure.get() != null) {
+                return;
+            }
+            pending.put(position, result);
+            PageResult next;
+            while (nextToEmit < end && (next = pending.remove(nextToEmit)) != null) {
+                sink.pageExtracted(next);
+                emittedChars += next.getText().length();
+                nextToEmit++;
+                window.release();
+                if (selection.isExhausted(emittedChars, started)) {
+                    stop();
+                }
+            }
+            if (nextToEmit >= end) {
+                finished.countDown();
+            }
+        }
+        
+        // Ends the run after the pages emitted so far. Pages that are still
+        // being stripped or recognized are thrown away when they finish.
+        private synchronized void stop() {
+            if (end > nextToEmit) {
+                end = nextToEmit;
+                pending.clear();
+                releaseWaiters();
+            }
+            finished.countDown();
+        }
+        
+        // Pages already being recognized finish, but nothing more is emitted
+        private void cancel() {
+            fail(new CancellationException("Extraction cancelled"));
+        }
+        
+        // Records the first failure and wakes every thread that is waiting
+        // for a permit or for the document to finish
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                releaseWaiters();
+                finished.countDown();
+            }
+        }
+        
+        private void releaseWaiters() {
+            window.release(pageCount + 1);
+            if (ocrEngine != null) {
+                queued.release(pageCount + 1);
+                rendering.release(pageCount + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package pdftotext;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+
+// Opens PDFs with a bounded heap footprint. PDFBox copies every stream of the
+// document into a buffer while parsing; by default those buffers all live on
+// the heap, so a 2 GB scanned archive needs 2 GB of heap just to open. Here
+// they are kept in memory up to a limit and spill over to a scratch file.
+// Local files are memory-mapped; PDFs also load from streams and buffers.
+public class DocumentLoader {
+    
+    // PDF readers accept up to this much junk before the %PDF header
+    private static final int HEADER_SEARCH_BYTES = 1024;
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    
+    private long maxMainMemoryBytes = megabytes(Long.getLong("pdftotext.maxMemoryMB", 256));
+    private File scratchDirectory = scratchDirectoryProperty();
+    private boolean mapFiles = !Boolean.getBoolean("pdftotext.noMmap");
+    private final StageStats loadStats = new StageStats("load", "documents");
+    
+    private static long megabytes(long mb) {
+        return mb < 0 ? -1 : mb * 1024 * 1024;
+    }
+    
+    private static File scratchDirectoryProperty() {
+        String dir = System.getProperty("pdftotext.scratchDir");
+        return dir == null ? null : new File(dir);
+    }
+    
+    public long getMaxMainMemoryBytes() {
+        return maxMainMemoryBytes;
+    }
+    
+    // Stream buffers beyond this many bytes go to the scratch file; -1 keeps
+    // everything in memory as PDFBox does by default
+    public void setMaxMainMemoryBytes(long maxMainMemoryBytes) {
+        if (maxMainMemoryBytes < -1) {
+            throw new IllegalArgumentException("Maximum main memory must be -1 (unlimited) or at least 0: " + maxMainMemoryBytes);
+        }
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+    }
+    
+    public File getScratchDirectory() {
+        return scratchDirectory;
+    }
+    
+    // null uses the system temp directory
+    public void setScratchDirectory(File scratchDirectory) {
+        if (scratchDirectory != null && !scratchDirectory.isDirectory()) {
+            throw new IllegalArgumentException("Scratch directory does not exist: " + scratchDirectory);
+        }
+        this.scratchDirectory = scratchDirectory;
+    }
+    
+    public boolean isMapFiles() {
+        return mapFiles;
+    }
+    
+    // Read files through a memory mapping instead of PDFBox's buffered file
+    // reader, which copies every read through its own page buffers
+    public void setMapFiles(boolean mapFiles) {
+        this.mapFiles = mapFiles;
+    }
+    
+    public StageStats getLoadStats() {
+        return loadStats;
+    }
+    
+    public PDDocument load(File pdfFile) throws IOException {
+        long start = System.nanoTime();
+        // A mapping cannot be larger than 2 GB
+        if (!mapFiles || pdfFile.length() == 0 || pdfFile.length() > Integer.MAX_VALUE) {
+            return loaded(PDDocument.load(pdfFile, memoryUsageSetting()), start);
+        }
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(pdfFile.toPath(), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return loaded(parse(new ByteBufferRandomAccessRead(mapped)), start);
+    }
+    
+    // For PDFs coming from a pipe or another process. The parser needs to
+    // seek, so the stream is read to its end first, into memory up to the
+    // memory limit and into the scratch file beyond it.
+    public PDDocument load(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        PushbackInputStream header = new PushbackInputStream(in, HEADER_SEARCH_BYTES);
+        byte[] head = new byte[HEADER_SEARCH_BYTES];
+        int length = readHead(header, head);
+        if (!hasPdfHeader(head, length)) {
+            throw new IOException("Input is not a PDF: no %PDF header");
+        }
+        header.unread(head, 0, length);
+        return loaded(PDDocument.load(header, memoryUsageSetting()), start);
+    }
+    
+    // Parsed in place, the array is not copied
+    public PDDocument load(byte[] pdf) throws IOException {
+        return load(ByteBuffer.wrap(pdf));
+    }
+    
+    // From the buffer's position to its limit; the buffer must not change
+    // until the document is closed
+    public PDDocument load(ByteBuffer pdf) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer head = pdf.slice();
+        head.limit(Math.min(head.limit(), HEADER_SEARCH_BYTES));
+        byte[] bytes = new byte[head.remaining()];
+        head.get(bytes);
+        if (!hasPdfHeader(bytes, bytes.length)) {
+            throw new IOException("Input is not a PDF: no %PDF header");
+        }
+        return loaded(parse(new ByteBufferRandomAccessRead(pdf)), start);
+    }
+    
+    // What PDDocument.load does with a file, with our own reader
+    private PDDocument parse(RandomAccessRead source) throws IOException {
+        ScratchFile scratchFile = new ScratchFile(memoryUsageSetting());
+        try {
+            PDFParser parser = new PDFParser(source, "", null, null, scratchFile);
+            parser.parse();
+            // The document closes the reader and the scratch file
+            return parser.getPDDocument();
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            scratchFile.close();
+            throw e;
+        }
+    }
+    
+    private PDDocument loaded(PDDocument document, long start) {
+        loadStats.recordPage(System.nanoTime() - start);
+        // Pages are visited once, so cached images only hold on to memory
+        document.setResourceCache(new NoXObjectResourceCache());
+        return document;
+    }
+    
+    // Whether the file starts with a PDF header, whatever its name
+    public static boolean isPdf(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        byte[] head = new byte[HEADER_SEARCH_BYTES];
+        try (InputStream in = new FileInputStream(file)) {
+            return hasPdfHeader(head, readHead(in, head));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    // Fills head unless the stream ends first; returns the bytes read
+    private static int readHead(InputStream in, byte[] head) throws IOException {
+        int length = 0;
+        int read;
+        while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+            length += read;
+        }
+        return length;
+    }
+    
+    static boolean hasPdfHeader(byte[] head, int length) {
+        for (int i = 0; i + PDF_MAGIC.length <= length; i++) {
+            int j = 0;
+            while (j < PDF_MAGIC.length && head[i + j] == PDF_MAGIC[j]) {
+                j++;
+            }
+            if (j == PDF_MAGIC.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private MemoryUsageSetting memoryUsageSetting() {
+        // A new setting per document, each document gets its own scratch file
+        MemoryUsageSetting setting = maxMainMemoryBytes < 0
+            ? MemoryUsageSetting.setupMainMemoryOnly()
+            : MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        return setting.setTempDir(scratchDirectory);
+    }
+    
+    // Keeps fonts and color spaces, which are shared between pages, but not
+    // image or form XObjects, which are large and usually used by one page
+    private static class NoXObjectResourceCache extends DefaultResourceCache {
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+            // Not cached
+        }
+    }
+}
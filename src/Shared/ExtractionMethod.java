@@ -0,0 +1,18 @@
+package pdftotext;
+
+public enum ExtractionMethod {
+    TEXT_LAYER("text layer"),
+    OCR("OCR"),
+    OCR_UNAVAILABLE("OCR unavailable"),
+    BLANK("blank page");
+    
+    private final String label;
+    
+    ExtractionMethod(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+}
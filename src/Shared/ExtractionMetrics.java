@@ -0,0 +1,372 @@
+package pdftotext;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Counters and stage timings for everything a DocumentExtractor has done,
+// for finding slow documents and sizing the worker pools from real runs.
+// Available over JMX (domain "pdftotext") and as a JSON summary.
+public class ExtractionMetrics implements ExtractionMetricsMBean {
+    
+    private static final int SLOWEST_DOCUMENTS = 10;
+    
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder failedDocuments = new LongAdder();
+    private final LongAdder updatedDocuments = new LongAdder();
+    private final LongAdder documentCopies = new LongAdder();
+    private final LongAdder skippedDocumentCopies = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder textLayerPages = new LongAdder();
+    private final LongAdder ocrPages = new LongAdder();
+    private final LongAdder ocrUnavailablePages = new LongAdder();
+    private final LongAdder blankPages = new LongAdder();
+    private final LongAdder ocrFailedPages = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputChars = new LongAdder();
+    private final List<StageStats> stages = new ArrayList<>();
+    // Fastest of the slowest documents first, so it is the one replaced
+    private final PriorityQueue<DocumentTiming> slowest =
+        new PriorityQueue<>(Comparator.comparingLong(DocumentTiming::getNanos));
+    private volatile ResultCache resultCache;
+    private volatile PageCache pageCache;
+    private volatile OcrEngine ocrEngine;
+    private final AtomicLong timeToFirstByteMillis = new AtomicLong(-1);
+    
+    public ExtractionMetrics(StageStats... stages) {
+        Collections.addAll(this.stages, stages);
+    }
+    
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
+    public void setPageCache(PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+    
+    // For the OCR cache and blank image counts
+    public void setOcrEngine(OcrEngine ocrEngine) {
+        this.ocrEngine = ocrEngine;
+    }
+    
+    void recordPage(PageResult page) {
+        pages.increment();
+        outputChars.add(page.getText().length());
+        switch (page.getMethod()) {
+            case TEXT_LAYER:
+                textLayerPages.increment();
+                break;
+            case OCR:
+                ocrPages.increment();
+                break;
+            case BLANK:
+                blankPages.increment();
+                break;
+            default:
+                ocrUnavailablePages.increment();
+        }
+    }
+    
+    // The first output of the process: how long after the JVM started the
+    // first page was written out. Later calls are ignored.
+    public void recordFirstByte() {
+        if (timeToFirstByteMillis.get() < 0) {
+            long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            timeToFirstByteMillis.compareAndSet(-1, elapsed);
+        }
+    }
+    
+    void recordOcrFailure() {
+        ocrFailedPages.increment();
+    }
+    
+    // A document with incremental updates, extracted with the page cache
+    void recordUpdatedDocument() {
+        updatedDocuments.increment();
+    }
+    
+    // Another copy of a document loaded for an extra producer
+    void recordDocumentCopy() {
+        documentCopies.increment();
+    }
+    
+    // Copies not loaded because too many documents were open already
+    void recordSkippedDocumentCopies(int copies) {
+        skippedDocumentCopies.add(copies);
+    }
+    
+    void recordDocument(String name, long bytes, int pageCount, long nanos, boolean failed) {
+        documents.increment();
+        inputBytes.add(bytes);
+        if (failed) {
+            failedDocuments.increment();
+        }
+        synchronized (slowest) {
+            slowest.add(new DocumentTiming(name, pageCount, nanos));
+            if (slowest.size() > SLOWEST_DOCUMENTS) {
+                slowest.poll();
+            }
+        }
+    }
+    
+    // Registers this and every stage with the platform MBean server. Only
+    // the first registration of a name wins, which is fine for one extractor
+    // per process; later ones are skipped with a warning.
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName("pdftotext:type=ExtractionMetrics"));
+            for (StageStats stage : stages) {
+                server.registerMBean(stage, new ObjectName("pdftotext:type=Stage,name=" + ObjectName.quote(stage.getName())));
+            }
+        } catch (JMException e) {
+            System.err.println("Warning: Could not register JMX metrics: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+    
+    @Override
+    public long getFailedDocuments() {
+        return failedDocuments.sum();
+    }
+    
+    @Override
+    public long getUpdatedDocuments() {
+        return updatedDocuments.sum();
+    }
+    
+    @Override
+    public long getDocumentCopies() {
+        return documentCopies.sum();
+    }
+    
+    @Override
+    public long getSkippedDocumentCopies() {
+        return skippedDocumentCopies.sum();
+    }
+    
+    @Override
+    public long getPages() {
+        return pages.sum();
+    }
+    
+    @Override
+    public long getTextLayerPages() {
+        return textLayerPages.sum();
+    }
+    
+    @Override
+    public long getOcrPages() {
+        return ocrPages.sum();
+    }
+    
+    @Override
+    public long getBlankPages() {
+        return blankPages.sum();
+    }
+    
+    @Override
+    public long getOcrFailedPages() {
+        return ocrFailedPages.sum();
+    }
+    
+    // Share of pages that had no usable text layer
+    @Override
+    public double getOcrFallbackRate() {
+        long total = pages.sum();
+        return total == 0 ? 0.0 : (ocrPages.sum() + ocrUnavailablePages.sum()) / (double) total;
+    }
+    
+    @Override
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+    
+    @Override
+    public long getOutputChars() {
+        return outputChars.sum();
+    }
+    
+    @Override
+    public long getCacheHits() {
+        ResultCache cache = resultCache;
+        return cache == null ? 0 : cache.getHits();
+    }
+    
+    @Override
+    public long getCacheMisses() {
+        ResultCache cache = resultCache;
+        return cache == null ? 0 : cache.getMisses();
+    }
+    
+    @Override
+    public long getPageCacheHits() {
+        PageCache cache = pageCache;
+        return cache == null ? 0 : cache.getHits();
+    }
+    
+    @Override
+    public long getPageCacheMisses() {
+        PageCache cache = pageCache;
+        return cache == null ? 0 : cache.getMisses();
+    }
+    
+    @Override
+    public long getOcrCacheHits() {
+        OcrResultCache cache = ocrResultCache();
+        return cache == null ? 0 : cache.getHits();
+    }
+    
+    @Override
+    public long getOcrCacheMisses() {
+        OcrResultCache cache = ocrResultCache();
+        return cache == null ? 0 : cache.getMisses();
+    }
+    
+    @Override
+    public double getOcrCacheHitRate() {
+        OcrResultCache cache = ocrResultCache();
+        return cache == null ? 0.0 : cache.getHitRate();
+    }
+    
+    @Override
+    public long getBlankImages() {
+        OcrEngine engine = ocrEngine;
+        return engine == null ? 0 : engine.getBlankImages();
+    }
+    
+    private OcrResultCache ocrResultCache() {
+        OcrEngine engine = ocrEngine;
+        return engine == null ? null : engine.getResultCache();
+    }
+    
+    // -1 until the first page is written
+    @Override
+    public long getTimeToFirstByteMillis() {
+        return timeToFirstByteMillis.get();
+    }
+    
+    @Override
+    public String getSummaryJson() {
+        return toJson();
+    }
+    
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"documents\": ").append(getDocuments()).append(",\n");
+        json.append("  \"failedDocuments\": ").append(getFailedDocuments()).append(",\n");
+        json.append("  \"updatedDocuments\": ").append(getUpdatedDocuments()).append(",\n");
+        json.append("  \"documentCopies\": ").append(getDocumentCopies()).append(",\n");
+        json.append("  \"skippedDocumentCopies\": ").append(getSkippedDocumentCopies()).append(",\n");
+        json.append("  \"pages\": ").append(getPages()).append(",\n");
+        json.append("  \"textLayerPages\": ").append(getTextLayerPages()).append(",\n");
+        json.append("  \"ocrPages\": ").append(getOcrPages()).append(",\n");
+        json.append("  \"ocrUnavailablePages\": ").append(ocrUnavailablePages.sum()).append(",\n");
+        json.append("  \"blankPages\": ").append(getBlankPages()).append(",\n");
+        json.append("  \"ocrFailedPages\": ").append(getOcrFailedPages()).append(",\n");
+        json.append("  \"ocrFallbackRate\": ").append(Json.number(getOcrFallbackRate())).append(",\n");
+        json.append("  \"inputBytes\": ").append(getInputBytes()).append(",\n");
+        json.append("  \"outputChars\": ").append(getOutputChars()).append(",\n");
+        if (getTimeToFirstByteMillis() >= 0) {
+            json.append("  \"timeToFirstByteMillis\": ").append(getTimeToFirstByteMillis()).append(",\n");
+        }
+        ResultCache cache = resultCache;
+        if (cache != null) {
+            json.append("  \"cache\": {\"hits\": ").append(cache.getHits())
+                .append(", \"misses\": ").append(cache.getMisses())
+                .append(", \"evictions\": ").append(cache.getEvictions()).append("},\n");
+        }
+        PageCache pages = pageCache;
+        if (pages != null) {
+            json.append("  \"pageCache\": {\"hits\": ").append(pages.getHits())
+                .append(", \"misses\": ").append(pages.getMisses())
+                .append(", \"evictions\": ").append(pages.getEvictions()).append("},\n");
+        }
+        OcrResultCache ocrCache = ocrResultCache();
+        if (ocrCache != null) {
+            json.append("  \"ocrCache\": {\"hits\": ").append(ocrCache.getHits())
+                .append(", \"misses\": ").append(ocrCache.getMisses())
+                .append(", \"evictions\": ").append(ocrCache.getEvictions())
+                .append(", \"hitRate\": ").append(Json.number(ocrCache.getHitRate())).append("},\n");
+        }
+        if (ocrEngine != null) {
+            json.append("  \"blankImages\": ").append(getBlankImages()).append(",\n");
+            json.append("  \"tiledPages\": ").append(ocrEngine.getTiledPages()).append(",\n");
+            if (ocrEngine.isScriptDetection()) {
+                json.append("  \"rotatedPages\": ").append(ocrEngine.getRotatedPages()).append(",\n");
+            }
+            json.append("  \"languages\": {");
+            String separator = "";
+            for (Map.Entry<String, Long> language : ocrEngine.getLanguagePages().entrySet()) {
+                json.append(separator).append(Json.quote(language.getKey())).append(": ").append(language.getValue());
+                separator = ", ";
+            }
+            json.append("},\n");
+            json.append("  \"tesseractEvictions\": ").append(ocrEngine.getTesseractPool().getEvictions()).append(",\n");
+            RasterPool rasters = ocrEngine.getRasterPool();
+            if (rasters != null) {
+                json.append("  \"rasterPool\": {\"reused\": ").append(rasters.getReused())
+                    .append(", \"allocated\": ").append(rasters.getAllocated())
+                    .append(", \"discarded\": ").append(rasters.getDiscarded()).append("},\n");
+            }
+        }
+        
+        json.append("  \"stages\": {");
+        for (int i = 0; i < stages.size(); i++) {
+            StageStats stage = stages.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    ").append(Json.quote(stage.getName())).append(": {\"count\": ").append(stage.getPages())
+                .append(", \"unit\": ").append(Json.quote(stage.getUnit()))
+                .append(", \"busySeconds\": ").append(Json.number(stage.getBusyNanos() / 1e9))
+                .append(", \"waitSeconds\": ").append(Json.number(stage.getWaitNanos() / 1e9))
+                .append(", \"perSecondPerThread\": ").append(Json.number(stage.getPagesPerSecond())).append("}");
+        }
+        json.append("\n  },\n");
+        
+        json.append("  \"slowestDocuments\": [");
+        List<DocumentTiming> timings;
+        synchronized (slowest) {
+            timings = new ArrayList<>(slowest);
+        }
+        timings.sort(Comparator.comparingLong(DocumentTiming::getNanos).reversed());
+        for (int i = 0; i < timings.size(); i++) {
+            DocumentTiming timing = timings.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"document\": ").append(Json.quote(timing.name))
+                .append(", \"pages\": ").append(timing.pageCount)
+                .append(", \"seconds\": ").append(Json.number(timing.nanos / 1e9)).append("}");
+        }
+        json.append(timings.isEmpty() ? "]\n" : "\n  ]\n");
+        return json.append("}\n").toString();
+    }
+    
+    private static class DocumentTiming {
+        private final String name;
+        private final int pageCount;
+        private final long nanos;
+        
+        DocumentTiming(String name, int pageCount, long nanos) {
+            this.name = name;
+            this.pageCount = pageCount;
+            this.nanos = nanos;
+        }
+        
+        long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pdftotext;
+
+// JMX view of the extraction counters; stage timings are separate StageStats beans
+public interface ExtractionMetricsMBean {
+    
+    long getDocuments();
+    
+    long getFailedDocuments();
+    
+    long getUpdatedDocuments();
+    
+    long getDocumentCopies();
+    
+    long getSkippedDocumentCopies();
+    
+    long getPages();
+    
+    long getTextLayerPages();
+    
+    long getOcrPages();
+    
+    long getBlankPages();
+    
+    long getOcrFailedPages();
+    
+    double getOcrFallbackRate();
+    
+    long getInputBytes();
+    
+    long getOutputChars();
+    
+    long getCacheHits();
+    
+    long getCacheMisses();
+    
+    long getPageCacheHits();
+    
+    long getPageCacheMisses();
+    
+    long getOcrCacheHits();
+    
+    long getOcrCacheMisses();
+    
+    double getOcrCacheHitRate();
+    
+    long getBlankImages();
+    
+    long getTimeToFirstByteMillis();
+    
+    String getSummaryJson();
+}
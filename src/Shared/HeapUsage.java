@@ -0,0 +1,28 @@
+package pdftotext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+// Peak heap use since the JVM started, as recorded by its memory pools. The pools peak at
+// different moments, so the sum is an upper bound on the real peak.
+public final class HeapUsage {
+    
+    private HeapUsage() {
+    }
+    
+    public static long getPeakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    public static String describePeak() {
+        return String.format("Peak heap: %d MB of %d MB maximum",
+            getPeakBytes() / (1024 * 1024), Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    }
+}
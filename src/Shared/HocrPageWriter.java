@@ -0,0 +1,102 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// Writes hOCR: XHTML with one ocr_page per page, ocr_line spans and
+// ocrx_word spans carrying bounding boxes and, for OCR words, x_wconf.
+// Coordinates are points, which the scan_res of 72 on every page declares.
+public class HocrPageWriter implements PageSink {
+    
+    private final Writer out;
+    private boolean started;
+    private int lineId;
+    private int wordId;
+    
+    public HocrPageWriter(Writer out) {
+        this.out = out;
+    }
+    
+    @Override
+    public boolean wantsWords() {
+        return true;
+    }
+    
+    private void start() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                  + "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\"\n"
+                  + "    \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n"
+                  + "<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"en\" lang=\"en\">\n"
+                  + " <head>\n"
+                  + "  <title></title>\n"
+                  + "  <meta http-equiv=\"Content-Type\" content=\"text/html;charset=utf-8\"/>\n"
+                  + "  <meta name=\"ocr-system\" content=\"pdftotext\"/>\n"
+                  + "  <meta name=\"ocr-capabilities\" content=\"ocr_page ocr_line ocrx_word\"/>\n"
+                  + " </head>\n"
+                  + " <body>\n");
+    }
+    
+    @Override
+    public void pageExtracted(PageResult page) throws IOException {
+        start();
+        int number = page.getPageNumber();
+        StringBuilder html = new StringBuilder();
+        html.append("  <div class=\"ocr_page\" id=\"page_").append(number).append("\" title=\"bbox 0 0 ")
+            .append(Math.round(page.getWidth())).append(' ').append(Math.round(page.getHeight()))
+            .append("; ppageno ").append(number - 1).append("; scan_res 72 72\">\n");
+        
+        List<WordBox> words = page.getWords();
+        if (words != null) {
+            for (List<WordBox> line : WordBox.groupLines(words)) {
+                html.append("   <span class=\"ocr_line\" id=\"line_").append(++lineId).append("\" title=\"");
+                appendBox(html, lineBox(line));
+                html.append("\">");
+                for (WordBox word : line) {
+                    html.append("\n    <span class=\"ocrx_word\" id=\"word_").append(++wordId).append("\" title=\"");
+                    appendBox(html, word);
+                    if (word.hasConfidence()) {
+                        html.append("; x_wconf ").append(Math.round(word.getConfidence()));
+                    }
+                    html.append("\">").append(Xml.escape(word.getText())).append("</span>");
+                }
+                html.append("\n   </span>\n");
+            }
+        }
+        html.append("  </div>\n");
+        
+        out.write(html.toString());
+        out.flush();
+    }
+    
+    private static void appendBox(StringBuilder html, WordBox box) {
+        html.append("bbox ").append(Math.round(box.getLeft())).append(' ').append(Math.round(box.getTop()))
+            .append(' ').append(Math.round(box.getRight())).append(' ').append(Math.round(box.getBottom()));
+    }
+    
+    // The box around all words of a line
+    static WordBox lineBox(List<WordBox> line) {
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (WordBox word : line) {
+            left = Math.min(left, word.getLeft());
+            top = Math.min(top, word.getTop());
+            right = Math.max(right, word.getRight());
+            bottom = Math.max(bottom, word.getBottom());
+        }
+        return new WordBox("", left, top, right, bottom, WordBox.NO_CONFIDENCE, line.get(0).getLine());
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        start();
+        out.write(" </body>\n</html>\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,48 @@
+package pdftotext;
+
+import java.util.Locale;
+
+// Just enough JSON writing for the metrics summary and the JSON output
+// formats, without a library dependency
+public final class Json {
+    
+    private Json() {
+    }
+    
+    public static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+    
+    // Fixed precision, and always a '.' whatever the default locale
+    public static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,75 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+// Writes one JSON object per line and page:
+//
+//   {"page": 1, "method": "text_layer", "width": 612.000, "height": 792.000,
+//    "offset": 0, "text": "...", "words": [{"text": "Invoice", "offset": 0,
+//    "line": 0, "bbox": [72.000, 70.120, 110.350, 81.000]}, ...]}
+//
+// "offset" of a page is where its text starts in all page texts put
+// together; "offset" of a word is where it starts in its page's text, or -1
+// when it could not be matched there. Boxes
+// are left, top, right, bottom in points from the top left of the page, and
+// OCR words also have "conf" from 0 to 100.
+public class JsonLinesPageWriter implements PageSink {
+    
+    private final Writer out;
+    private long offset;
+    
+    public JsonLinesPageWriter(Writer out) {
+        this.out = out;
+    }
+    
+    @Override
+    public boolean wantsWords() {
+        return true;
+    }
+    
+    @Override
+    public void pageExtracted(PageResult page) throws IOException {
+        String text = page.getText();
+        StringBuilder json = new StringBuilder(text.length() * 3 + 128);
+        json.append("{\"page\": ").append(page.getPageNumber())
+            .append(", \"method\": ").append(Json.quote(page.getMethod().name().toLowerCase(Locale.ROOT)))
+            .append(", \"width\": ").append(Json.number(page.getWidth()))
+            .append(", \"height\": ").append(Json.number(page.getHeight()))
+            .append(", \"offset\": ").append(offset)
+            .append(", \"text\": ").append(Json.quote(text))
+            .append(", \"words\": [");
+        
+        List<WordBox> words = page.getWords();
+        if (words != null) {
+            // Words are in text order, so each is searched for after the last
+            int searchFrom = 0;
+            for (int i = 0; i < words.size(); i++) {
+                WordBox word = words.get(i);
+                int wordOffset = text.indexOf(word.getText(), searchFrom);
+                if (wordOffset >= 0) {
+                    searchFrom = wordOffset + word.getText().length();
+                }
+                json.append(i == 0 ? "" : ", ")
+                    .append("{\"text\": ").append(Json.quote(word.getText()))
+                    .append(", \"offset\": ").append(wordOffset)
+                    .append(", \"line\": ").append(word.getLine())
+                    .append(", \"bbox\": [").append(Json.number(word.getLeft()))
+                    .append(", ").append(Json.number(word.getTop()))
+                    .append(", ").append(Json.number(word.getRight()))
+                    .append(", ").append(Json.number(word.getBottom())).append("]");
+                if (word.hasConfidence()) {
+                    json.append(", \"conf\": ").append(Json.number(word.getConfidence()));
+                }
+                json.append("}");
+            }
+        }
+        json.append("]}\n");
+        
+        out.write(json.toString());
+        out.flush();
+        offset += text.length();
+    }
+}
@@ -0,0 +1,56 @@
+package pdftotext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+// Blocking waits that tell a ForkJoinPool the current worker is blocked, so the
+// pool can start a compensating thread and keep page tasks running while a
+// document task waits on them. Outside a ForkJoinPool these simply block.
+public final class ManagedBlocking {
+    
+    private ManagedBlocking() {
+    }
+    
+    public static void acquire(Semaphore semaphore) throws InterruptedException {
+        acquire(semaphore, 1);
+    }
+    
+    public static void acquire(Semaphore semaphore, int permits) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean acquired;
+            
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!acquired) {
+                    semaphore.acquire(permits);
+                    acquired = true;
+                }
+                return true;
+            }
+            
+            @Override
+            public boolean isReleasable() {
+                if (!acquired) {
+                    acquired = semaphore.tryAcquire(permits);
+                }
+                return acquired;
+            }
+        });
+    }
+    
+    public static void await(CountDownLatch latch) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                latch.await();
+                return true;
+            }
+            
+            @Override
+            public boolean isReleasable() {
+                return latch.getCount() == 0;
+            }
+        });
+    }
+}
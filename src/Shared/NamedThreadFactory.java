@@ -0,0 +1,23 @@
+package pdftotext;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Daemon threads named prefix-1, prefix-2, ... so they show up recognizably in
+// thread dumps and never keep the JVM alive
+public class NamedThreadFactory implements ThreadFactory {
+    
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+    
+    public NamedThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+    
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
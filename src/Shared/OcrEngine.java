@@ -0,0 +1,614 @@
+package pdftotext;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
+
+// Runs OCR on several pages at once. Tesseract engines are not thread-safe, so
+// every worker borrows its own engine from a bounded pool for each page.
+// Engines are created the first time they are needed and then stay loaded.
+// With script detection, each page first goes through a quick orientation
+// and script pass on a small copy of its image, and is then turned upright
+// and recognized by an engine for the language of its script.
+public class OcrEngine implements AutoCloseable {
+    
+    // Try different possible tessdata paths
+    private static final String[] TESSDATA_PATHS = {
+        "/opt/homebrew/share/tessdata",  // Apple Silicon Homebrew
+        "/usr/local/share/tessdata",     // Intel Homebrew
+        "/usr/share/tessdata",           // System installation
+        "tessdata",                      // Local copy
+        "lib/Tess4J/tessdata",          // Bundled copy
+        "../GitHub/ImageToText/Tess4J/tessdata",
+        "/Users/jasonhe/Desktop/future Github Projects/GitHub/ImageToText/Tess4J/tessdata"
+    };
+    
+    // Tesseract's accuracy drops quickly below this, even when the scan
+    // itself has no more detail to offer
+    private static final int MIN_ADAPTIVE_DPI = 150;
+    // An image must cover this much of the page to count as the page's scan
+    private static final float SCAN_COVERAGE = 0.5f;
+    // ... and this much to be OCRed on its own instead of rendering the page
+    private static final float FULL_PAGE_COVERAGE = 0.9f;
+    // Orientation and script detection looks at the shapes of whole lines,
+    // which a 150 DPI copy shows as well as the full image does
+    private static final int DETECTION_DPI = 150;
+    // Below these confidences a page is left as it is and in the main
+    // language; orientation uses the threshold OCRmyPDF settled on
+    private static final float MIN_ORIENTATION_CONFIDENCE = 14f;
+    private static final float MIN_SCRIPT_CONFIDENCE = 1f;
+    
+    private final OcrSettings settings;
+    private final String tessdataPath;
+    private final TesseractPool tesseractPool;
+    // null without script detection
+    private final TesseractPool detectionPool;
+    private final ForkJoinPool workers;
+    private final StageStats renderStats = new StageStats("render");
+    private final StageStats decodeStats = new StageStats("image decode");
+    private final StageStats detectionStats = new StageStats("script detection");
+    private final StageStats ocrStats = new StageStats("ocr");
+    // null when turned off
+    private final OcrResultCache resultCache;
+    // null when turned off
+    private final RasterPool rasterPool;
+    private final AtomicLong blankImages = new AtomicLong();
+    private final AtomicLong tiledPages = new AtomicLong();
+    private final AtomicLong rotatedPages = new AtomicLong();
+    private final Map<String, AtomicLong> languagePages = new ConcurrentHashMap<>();
+    // Languages found missing from tessdata, so each is reported once
+    private final Map<String, Boolean> missingLanguages = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> backgroundWarmUp = new AtomicReference<>();
+    
+    public OcrEngine(OcrSettings settings) {
+        this.settings = settings;
+        this.tessdataPath = findTessdataPath();
+        if (tessdataPath == null) {
+            throw new IllegalStateException("Tessdata directory not found. Tried paths: " + String.join(", ", TESSDATA_PATHS));
+        }
+        
+        resultCache = settings.getResultCacheMb() == 0 ? null
+                      : new OcrResultCache(settings.getResultCacheMb() * 1024L * 1024L);
+        // A document never has more images out than are being rendered or
+        // are queued and being recognized
+        rasterPool = settings.isRasterPooling()
+                     ? new RasterPool(settings.getRenderThreadCount() + settings.getQueueDepth()) : null;
+        
+        int workerCount = settings.getWorkerCount();
+        tesseractPool = new TesseractPool(tessdataPath, settings, workerCount);
+        if (settings.isScriptDetection() && !isInstalled(WarmTesseract.OSD)) {
+            System.err.println("Warning: " + WarmTesseract.OSD + ".traineddata not found in " + tessdataPath
+                               + "; pages are not checked for orientation and script");
+            detectionPool = null;
+        } else {
+            detectionPool = settings.isScriptDetection() ? new TesseractPool(tessdataPath, settings, workerCount) : null;
+        }
+        // Work-stealing, so page tasks from many documents share the workers
+        // and idle threads pick up pages queued behind a large document
+        workers = new ForkJoinPool(workerCount, new OcrWorkerThreadFactory(), null, true);
+    }
+    
+    public static String findTessdataPath() {
+        for (String path : TESSDATA_PATHS) {
+            File tessdataDir = new File(path);
+            if (tessdataDir.exists() && tessdataDir.isDirectory()) {
+                return path;
+            }
+        }
+        return null;
+    }
+    
+    // Loads every engine up front, for long-running processes that should
+    // answer the first request as fast as the rest
+    public void warmUp() throws TesseractException {
+        warmUp(tesseractPool, settings.getLanguage());
+        if (detectionPool != null) {
+            warmUp(detectionPool, WarmTesseract.OSD);
+        }
+    }
+    
+    private static void warmUp(TesseractPool pool, String language) throws TesseractException {
+        List<WarmTesseract> engines = new ArrayList<>();
+        WarmTesseract engine;
+        while ((engine = pool.borrowIfIdleOrNew(language)) != null) {
+            engines.add(engine);
+        }
+        for (WarmTesseract loaded : engines) {
+            pool.release(loaded);
+        }
+    }
+    
+    // Starts loading one engine on a background thread, the first time it is
+    // called, so the first page that needs OCR finds Tesseract, its native
+    // library and the language data already loaded or loading. The future
+    // completes when that engine is in the pool.
+    public CompletableFuture<Void> warmUpAsync() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!backgroundWarmUp.compareAndSet(null, future)) {
+            return backgroundWarmUp.get();
+        }
+        new NamedThreadFactory("ocr-warm-up").newThread(() -> {
+            try {
+                WarmTesseract engine = tesseractPool.borrowIfIdleOrNew(settings.getLanguage());
+                if (engine != null) {
+                    tesseractPool.release(engine);
+                }
+                future.complete(null);
+            } catch (Throwable e) {
+                // The first page that needs OCR runs into the same problem and reports it
+                future.completeExceptionally(e);
+            }
+        }).start();
+        return future;
+    }
+    
+    // Whether tessdata has every part of a language such as eng+fra
+    private boolean isInstalled(String language) {
+        for (String part : language.split("\\+")) {
+            if (!new File(tessdataPath, part + ".traineddata").isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public String getTessdataPath() {
+        return tessdataPath;
+    }
+    
+    public int getWorkerCount() {
+        return settings.getWorkerCount();
+    }
+    
+    public String ocrImage(PageImage image) throws TesseractException, InterruptedException {
+        return ocrImage(image, null);
+    }
+    
+    // Adds the recognized words to words in points, unless it is null.
+    // Blank images and images recognized before are answered without Tesseract.
+    public String ocrImage(PageImage image, List<WordBox> words) throws TesseractException, InterruptedException {
+        String cacheKey = null;
+        if (resultCache != null || settings.isBlankDetection()) {
+            OcrResultCache.Fingerprint fingerprint = OcrResultCache.fingerprint(image.getImage());
+            if (settings.isBlankDetection() && fingerprint.isBlank()) {
+                blankImages.incrementAndGet();
+                return "";
+            }
+            if (resultCache != null) {
+                cacheKey = resultCache.key(fingerprint, image.getDpi(), settings.getCacheKey());
+                OcrResultCache.Entry cached = resultCache.get(cacheKey, words != null);
+                if (cached != null) {
+                    if (words != null) {
+                        words.addAll(cached.getWords());
+                    }
+                    return cached.getText();
+                }
+            }
+        }
+        
+        BufferedImage pixels = image.getImage();
+        String language = settings.getLanguage();
+        int rotation = 0;
+        OrientationScript detected = detectionPool == null ? null : detectOrientationScript(image);
+        if (detected != null) {
+            if (detected.getScriptConfidence() >= MIN_SCRIPT_CONFIDENCE) {
+                language = languageForScript(detected.getScript());
+            }
+            if (detected.getRotation() != 0 && detected.getOrientationConfidence() >= MIN_ORIENTATION_CONFIDENCE) {
+                rotation = detected.getRotation();
+                pixels = OrientationScript.rotate(pixels, rotation);
+                rotatedPages.incrementAndGet();
+            }
+        }
+        languagePages.computeIfAbsent(language, key -> new AtomicLong()).incrementAndGet();
+        
+        // Words of a turned page are found on the upright image and moved back
+        List<WordBox> found = words == null || rotation == 0 ? words : new ArrayList<>();
+        String text;
+        if (isTiled(pixels)) {
+            text = ocrTiled(pixels, image.getDpi(), language, found);
+        } else {
+            WarmTesseract tesseract = tesseractPool.borrow(language);
+            long start = System.nanoTime();
+            try {
+                text = tesseract.doOCR(pixels, image.getDpi(), found);
+            } finally {
+                ocrStats.recordPage(System.nanoTime() - start);
+                tesseractPool.release(tesseract);
+            }
+        }
+        if (found != words) {
+            float scale = 72f / image.getDpi();
+            words.addAll(OrientationScript.rotateBack(found, rotation, image.getImage().getWidth() * scale,
+                                                      image.getImage().getHeight() * scale));
+        }
+        if (cacheKey != null) {
+            resultCache.put(cacheKey, text, words);
+        }
+        return text;
+    }
+    
+    // Runs on a gray copy at a lower resolution, which is much faster and
+    // does not change what is found
+    private OrientationScript detectOrientationScript(PageImage image) throws TesseractException, InterruptedException {
+        BufferedImage small = image.getImage();
+        int dpi = image.getDpi();
+        if (dpi > DETECTION_DPI) {
+            small = downscale(small, DETECTION_DPI / (double) dpi);
+            dpi = DETECTION_DPI;
+        }
+        WarmTesseract detector = detectionPool.borrow(WarmTesseract.OSD);
+        long start = System.nanoTime();
+        try {
+            return detector.detectOrientationScript(small, dpi);
+        } finally {
+            detectionStats.recordPage(System.nanoTime() - start);
+            detectionPool.release(detector);
+        }
+    }
+    
+    private static BufferedImage downscale(BufferedImage image, double scale) {
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage small = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = small.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return small;
+    }
+    
+    // The language set for the script, when tessdata has it
+    private String languageForScript(String script) {
+        String language = settings.getLanguageForScript(script);
+        if (language.equals(settings.getLanguage()) || isInstalled(language)) {
+            return language;
+        }
+        if (missingLanguages.putIfAbsent(language, Boolean.TRUE) == null) {
+            System.err.println("Warning: No traineddata for " + language + " (" + script + " script) in "
+                               + tessdataPath + "; using " + settings.getLanguage());
+        }
+        return settings.getLanguage();
+    }
+    
+    private boolean isTiled(BufferedImage image) {
+        return settings.getTileMegapixels() > 0
+               && (long) image.getWidth() * image.getHeight() > settings.getTileMegapixels() * 1000000L;
+    }
+    
+    // One Tesseract call on a huge page keeps one core busy for minutes, so
+    // its tiles are spread over the workers. The calling worker recognizes
+    // the first tile itself and picks up others while it waits.
+    private String ocrTiled(BufferedImage image, int dpi, String language, List<WordBox> words)
+        throws TesseractException, InterruptedException {
+        if (!WarmTesseract.isDirectlyReadable(image)) {
+            // Each engine would otherwise draw its own gray copy of the whole page
+            image = WarmTesseract.grayCopy(image);
+        }
+        BufferedImage pixels = image;
+        TiledRecognition tiling = new TiledRecognition(image.getWidth(), image.getHeight(), dpi);
+        AtomicLong busyNanos = new AtomicLong();
+        // Set when a tile fails, so the tiles not started yet are skipped
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<ForkJoinTask<List<WordBox>>> tasks = new ArrayList<>();
+        for (Rectangle tile : tiling.getTiles()) {
+            tasks.add(ForkJoinTask.adapt(() -> abandoned.get() ? Collections.<WordBox>emptyList()
+                                               : recognizeTile(pixels, tile, dpi, language, busyNanos)));
+        }
+        boolean inPool = ForkJoinTask.getPool() == workers;
+        for (int i = 1; i < tasks.size(); i++) {
+            if (inPool) {
+                tasks.get(i).fork();
+            } else {
+                workers.execute(tasks.get(i));
+            }
+        }
+        
+        List<List<WordBox>> tileWords = new ArrayList<>();
+        try {
+            for (ForkJoinTask<List<WordBox>> task : tasks) {
+                tileWords.add(task == tasks.get(0) ? task.invoke() : task.join());
+            }
+        } catch (RuntimeException e) {
+            // Running tiles still read the page image, which goes back to the
+            // raster pool once this returns. Cancelling a ForkJoinTask does
+            // not stop it running, so wait for every tile.
+            abandoned.set(true);
+            for (ForkJoinTask<List<WordBox>> task : tasks) {
+                task.quietlyJoin();
+            }
+            // Tasks wrap the checked exceptions of the tiles
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof TesseractException) {
+                    throw (TesseractException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+            }
+            throw e;
+        }
+        ocrStats.recordPage(busyNanos.get());
+        tiledPages.incrementAndGet();
+        
+        List<WordBox> merged = tiling.merge(tileWords);
+        if (words != null) {
+            words.addAll(merged);
+        }
+        return TiledRecognition.toText(merged);
+    }
+    
+    private List<WordBox> recognizeTile(BufferedImage image, Rectangle tile, int dpi, String language,
+                                        AtomicLong busyNanos) throws TesseractException, InterruptedException {
+        // Words are always needed, to merge the tiles
+        List<WordBox> words = new ArrayList<>();
+        WarmTesseract tesseract = tesseractPool.borrow(language);
+        long start = System.nanoTime();
+        try {
+            tesseract.doOCR(image, tile, dpi, words);
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+            tesseractPool.release(tesseract);
+        }
+        return words;
+    }
+    
+    // The image to OCR for a page: the scan itself when the page is nothing
+    // but one scanned image, otherwise a rendering of the page
+    public PageImage renderPage(PDDocument document, PDFRenderer renderer, int page) throws IOException {
+        return renderPage(document, renderer, page, locateImages(document.getPage(page)));
+    }
+    
+    // With the page's images already located, for example by the pre-flight
+    // classification; content may be null to render at the configured DPI
+    public PageImage renderPage(PDDocument document, PDFRenderer renderer, int page, PageImageLocator content)
+        throws IOException {
+        PDPage pdPage = document.getPage(page);
+        if (content != null && settings.isEmbeddedImageOcr()) {
+            PageImage scan = decodeScan(pdPage, content);
+            if (scan != null) {
+                return scan;
+            }
+        }
+        
+        long start = System.nanoTime();
+        int dpi = chooseDpi(pdPage, content);
+        // Gray by default: Tesseract works on gray levels, and a gray image is
+        // a quarter the size of RGB
+        if (rasterPool != null) {
+            BufferedImage image = renderPooled(renderer, pdPage, page, dpi);
+            renderStats.recordPage(System.nanoTime() - start);
+            return new PageImage(image, dpi, rasterPool);
+        }
+        BufferedImage image = renderer.renderImageWithDPI(page, dpi, settings.getRenderMode());
+        renderStats.recordPage(System.nanoTime() - start);
+        return new PageImage(image, dpi);
+    }
+    
+    // Renders the page as renderImageWithDPI does, same size and same
+    // drawing, but into an image from the pool
+    private BufferedImage renderPooled(PDFRenderer renderer, PDPage pdPage, int page, int dpi) throws IOException {
+        float scale = dpi / 72f;
+        PDRectangle box = pdPage.getCropBox();
+        int width = (int) Math.max(Math.floor(box.getWidth() * scale), 1);
+        int height = (int) Math.max(Math.floor(box.getHeight() * scale), 1);
+        if (pdPage.getRotation() == 90 || pdPage.getRotation() == 270) {
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Page " + (page + 1) + " is too large to render at " + dpi + " DPI");
+        }
+        
+        BufferedImage image = rasterPool.take(width, height, bufferedImageType(settings.getRenderMode()));
+        Graphics2D g = image.createGraphics();
+        try {
+            // Paper is white, and the pixels still hold the previous page
+            g.setBackground(Color.WHITE);
+            g.clearRect(0, 0, width, height);
+            renderer.renderPageToGraphics(page, g, scale, scale, RenderDestination.EXPORT);
+        } catch (IOException | RuntimeException e) {
+            rasterPool.release(image);
+            throw e;
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+    
+    private static int bufferedImageType(ImageType renderMode) {
+        switch (renderMode) {
+            case GRAY:
+                return BufferedImage.TYPE_BYTE_GRAY;
+            case BINARY:
+                return BufferedImage.TYPE_BYTE_BINARY;
+            case ARGB:
+                return BufferedImage.TYPE_INT_ARGB;
+            default:
+                return BufferedImage.TYPE_INT_RGB;
+        }
+    }
+    
+    // Renders a scanned page at the resolution of its scan, so a 150 DPI scan
+    // is not blown up to 300 DPI only for Tesseract to work through four times
+    // the pixels. Pages that are not one large image use the configured DPI.
+    private int chooseDpi(PDPage page, PageImageLocator content) {
+        int maxDpi = settings.getDpi();
+        if (!settings.isAdaptiveDpi() || content == null) {
+            return maxDpi;
+        }
+        
+        PageImageLocator.PlacedImage scan = content.getLargestImage();
+        PDRectangle box = page.getCropBox();
+        if (scan == null || scan.getArea() < SCAN_COVERAGE * box.getWidth() * box.getHeight()) {
+            return maxDpi;
+        }
+        return Math.max(MIN_ADAPTIVE_DPI, Math.min(maxDpi, Math.round(scan.getDpi())));
+    }
+    
+    // null when neither adaptive DPI nor embedded images are used, or when
+    // the content stream cannot be read; the page is then simply rendered
+    private PageImageLocator locateImages(PDPage page) {
+        if (!settings.isAdaptiveDpi() && !settings.isEmbeddedImageOcr()) {
+            return null;
+        }
+        try {
+            return PageImageLocator.locate(page);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    // Decodes the page's scan at its own resolution, skipping rasterization
+    // and the copy it makes. Only for pages that are exactly one upright
+    // image over the whole page; anything drawn on top, masks or a rotated
+    // page would be lost, so those pages are rendered instead.
+    private PageImage decodeScan(PDPage page, PageImageLocator content) {
+        if (content.hasVectorContent() || content.getImages().size() != 1 || page.getRotation() % 360 != 0) {
+            return null;
+        }
+        PageImageLocator.PlacedImage scan = content.getImages().get(0);
+        if (!scan.isUpright() || scan.getCoverage(page.getCropBox()) < FULL_PAGE_COVERAGE
+            || !(scan.getImage() instanceof PDImageXObject)) {
+            return null;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            PDImageXObject image = (PDImageXObject) scan.getImage();
+            if (image.isStencil() || image.getMask() != null || image.getSoftMask() != null) {
+                return null;
+            }
+            // Scans finer than the DPI limit are thinned out while decoding
+            float nativeDpi = scan.getDpi();
+            int subsampling = Math.max(1, (int) (nativeDpi / settings.getDpi()));
+            BufferedImage decoded = image.getImage(null, subsampling);
+            if (decoded == null) {
+                return null;
+            }
+            decodeStats.recordPage(System.nanoTime() - start);
+            return new PageImage(decoded, Math.round(nativeDpi / subsampling));
+        } catch (IOException | RuntimeException e) {
+            // For example JBIG2 without a decoder plugin; fall back to rendering
+            return null;
+        }
+    }
+    
+    public OcrSettings getSettings() {
+        return settings;
+    }
+    
+    public ForkJoinPool getWorkers() {
+        return workers;
+    }
+    
+    public StageStats getRenderStats() {
+        return renderStats;
+    }
+    
+    public StageStats getDecodeStats() {
+        return decodeStats;
+    }
+    
+    public StageStats getDetectionStats() {
+        return detectionStats;
+    }
+    
+    public StageStats getOcrStats() {
+        return ocrStats;
+    }
+    
+    // null when the OCR cache is turned off
+    public OcrResultCache getResultCache() {
+        return resultCache;
+    }
+    
+    // null when raster pooling is turned off
+    public RasterPool getRasterPool() {
+        return rasterPool;
+    }
+    
+    public TesseractPool getTesseractPool() {
+        return tesseractPool;
+    }
+    
+    // Page images turned upright before recognition
+    public long getRotatedPages() {
+        return rotatedPages.get();
+    }
+    
+    // Page images recognized in each language
+    public Map<String, Long> getLanguagePages() {
+        Map<String, Long> pages = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : languagePages.entrySet()) {
+            pages.put(entry.getKey(), entry.getValue().get());
+        }
+        return pages;
+    }
+    
+    public boolean isScriptDetection() {
+        return detectionPool != null;
+    }
+    
+    // Page images recognized as tiles
+    public long getTiledPages() {
+        return tiledPages.get();
+    }
+    
+    // Page images found blank and not OCRed
+    public long getBlankImages() {
+        return blankImages.get();
+    }
+    
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        tesseractPool.close();
+        if (detectionPool != null) {
+            detectionPool.close();
+        }
+    }
+    
+    private static class OcrWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ocr-worker-" + counter.incrementAndGet());
+            return thread;
+        }
+    }
+}
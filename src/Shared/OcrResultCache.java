@@ -0,0 +1,260 @@
+package pdftotext;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory cache of OCR results, keyed by a hash of the page image's pixels
+// together with the OCR settings. Document sets repeat the same scanned pages
+// (cover sheets, terms and conditions, letterhead), and when the image is
+// the same pixel for pixel Tesseract does not need to see it again. Entries
+// are evicted least recently used first once their estimated size passes the
+// limit. The pass over the pixels that computes the hash also tells whether
+// the image is blank.
+public class OcrResultCache {
+    
+    // A pixel darker than this counts as ink
+    private static final int INK_LUMINANCE = 128;
+    // An image with at most one inked pixel in this many is blank; at 300 DPI
+    // that is a few specks of dust on a Letter page, well below a page number
+    private static final int BLANK_PIXELS_PER_INK = 50000;
+    // Rough heap cost of an entry beyond its text, and of each word box
+    private static final int ENTRY_BYTES = 128;
+    private static final int WORD_BYTES = 96;
+    
+    private final long maxBytes;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public OcrResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    // The recognized text, and the words when they were recognized too
+    public static class Entry {
+        private final String text;
+        private final List<WordBox> words;
+        
+        Entry(String text, List<WordBox> words) {
+            this.text = text;
+            this.words = words;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        // null when the words were not asked for
+        public List<WordBox> getWords() {
+            return words;
+        }
+        
+        long estimatedBytes() {
+            return ENTRY_BYTES + 2L * text.length() + (words == null ? 0 : (long) WORD_BYTES * words.size());
+        }
+    }
+    
+    // What one pass over an image's pixels found
+    public static class Fingerprint {
+        private final String hash;
+        private final boolean blank;
+        
+        Fingerprint(String hash, boolean blank) {
+            this.hash = hash;
+            this.blank = blank;
+        }
+        
+        public String getHash() {
+            return hash;
+        }
+        
+        public boolean isBlank() {
+            return blank;
+        }
+    }
+    
+    // Gray and black and white images, which is what rendering produces, are
+    // hashed straight from their pixel bytes; anything else is read as RGB
+    // rows. The image type is part of the hash, so the same page rendered two
+    // ways gets two entries.
+    public static Fingerprint fingerprint(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        MessageDigest digest = PageFingerprinter.sha256();
+        WritableRaster raster = image.getRaster();
+        boolean packed = raster.getDataBuffer() instanceof DataBufferByte && raster.getSampleModelTranslateX() == 0
+                         && raster.getSampleModelTranslateY() == 0;
+        long ink;
+        if (packed && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            digest.update((width + "x" + height + ";gray;").getBytes(StandardCharsets.US_ASCII));
+            ink = hashGray(raster, digest);
+        } else if (packed && image.getType() == BufferedImage.TYPE_BYTE_BINARY
+                   && raster.getSampleModel().getSampleSize(0) == 1) {
+            IndexColorModel colors = (IndexColorModel) image.getColorModel();
+            boolean zeroIsInk = luminance(colors.getRGB(0)) < INK_LUMINANCE;
+            boolean oneIsInk = luminance(colors.getRGB(1)) < INK_LUMINANCE;
+            digest.update((width + "x" + height + ";binary" + (zeroIsInk ? 0 : 1) + (oneIsInk ? 1 : 0) + ";")
+                          .getBytes(StandardCharsets.US_ASCII));
+            ink = hashBinary(raster, digest, zeroIsInk, oneIsInk);
+        } else {
+            digest.update((width + "x" + height + ";").getBytes(StandardCharsets.US_ASCII));
+            ink = hashRgb(image, digest);
+        }
+        boolean blank = ink * BLANK_PIXELS_PER_INK <= (long) width * height;
+        return new Fingerprint(PageFingerprinter.hex(digest.digest()), blank);
+    }
+    
+    private static long hashGray(WritableRaster raster, MessageDigest digest) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        byte[] pixels = buffer.getData();
+        int stride = model.getScanlineStride();
+        int offset = buffer.getOffset() + model.getOffset(0, 0);
+        long ink = 0;
+        for (int y = 0; y < height; y++) {
+            int start = offset + y * stride;
+            digest.update(pixels, start, width);
+            for (int i = start; i < start + width; i++) {
+                if ((pixels[i] & 0xff) < INK_LUMINANCE) {
+                    ink++;
+                }
+            }
+        }
+        return ink;
+    }
+    
+    // Eight pixels to a byte; the unused bits at the end of each row are
+    // left out, as they may hold anything
+    private static long hashBinary(WritableRaster raster, MessageDigest digest, boolean zeroIsInk, boolean oneIsInk) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) raster.getSampleModel();
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        byte[] pixels = buffer.getData();
+        int stride = model.getScanlineStride();
+        int offset = buffer.getOffset() + model.getOffset(0, 0);
+        int fullBytes = width / 8;
+        int lastBits = width % 8;
+        int lastMask = (0xff00 >> lastBits) & 0xff;
+        long ones = 0;
+        for (int y = 0; y < height; y++) {
+            int start = offset + y * stride;
+            digest.update(pixels, start, fullBytes);
+            for (int i = start; i < start + fullBytes; i++) {
+                ones += Integer.bitCount(pixels[i] & 0xff);
+            }
+            if (lastBits > 0) {
+                int last = pixels[start + fullBytes] & lastMask;
+                digest.update((byte) last);
+                ones += Integer.bitCount(last);
+            }
+        }
+        long zeros = (long) width * height - ones;
+        return (zeroIsInk ? zeros : 0) + (oneIsInk ? ones : 0);
+    }
+    
+    private static long hashRgb(BufferedImage image, MessageDigest digest) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        byte[] rowBytes = new byte[width * 3];
+        long ink = 0;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                rowBytes[3 * x] = (byte) (rgb >> 16);
+                rowBytes[3 * x + 1] = (byte) (rgb >> 8);
+                rowBytes[3 * x + 2] = (byte) rgb;
+                if (luminance(rgb) < INK_LUMINANCE) {
+                    ink++;
+                }
+            }
+            digest.update(rowBytes);
+        }
+        return ink;
+    }
+    
+    private static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+    }
+    
+    public String key(Fingerprint fingerprint, int dpi, String settingsKey) {
+        return fingerprint.getHash() + ";dpi=" + dpi + ";" + settingsKey;
+    }
+    
+    // The cached result, or null on a miss. An entry stored without words
+    // does not count when words are wanted.
+    public synchronized Entry get(String key, boolean needWords) {
+        Entry entry = entries.get(key);
+        if (entry == null || (needWords && entry.getWords() == null)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+    
+    public synchronized void put(String key, String text, List<WordBox> words) {
+        Entry entry = new Entry(text, words == null ? null : Collections.unmodifiableList(new ArrayList<>(words)));
+        if (entry.estimatedBytes() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.estimatedBytes();
+        }
+        totalBytes += entry.estimatedBytes();
+        
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().estimatedBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : hits / (double) lookups;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "OCR cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+               + entries.size() + " entries (" + (totalBytes / 1024) + " KB)";
+    }
+}
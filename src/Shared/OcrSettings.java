@@ -0,0 +1,246 @@
+package pdftotext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.pdfbox.rendering.ImageType;
+
+public class OcrSettings {
+    
+    // Tesseract language, such as deu or eng+fra; with script detection, the
+    // language of Latin pages and of pages whose script has no language set
+    private String language = System.getProperty("pdftotext.ocr.lang", "eng");
+    // Detect every page's orientation and script first, turn it upright and
+    // recognize it with the language set for its script
+    private boolean scriptDetection = Boolean.getBoolean("pdftotext.ocr.detectScript");
+    private final Map<String, String> scriptLanguages = defaultScriptLanguages();
+    private int dpi = 300; // 300 DPI for better OCR
+    // Render scans at the resolution they were scanned at, up to dpi
+    private boolean adaptiveDpi = !Boolean.getBoolean("pdftotext.ocr.fixedDpi");
+    private ImageType renderMode = parseRenderMode(System.getProperty("pdftotext.ocr.renderMode", "gray"));
+    // OCR a page's scan image directly instead of rendering the page
+    private boolean embeddedImageOcr = !Boolean.getBoolean("pdftotext.ocr.alwaysRender");
+    private int pageSegMode = 1;
+    private int ocrEngineMode = 1;
+    private int workerCount = Integer.getInteger("pdftotext.ocr.workers", Runtime.getRuntime().availableProcessors());
+    private int renderThreadCount = Integer.getInteger("pdftotext.ocr.renderThreads", 1);
+    // Rendered pages waiting for OCR; a 300 DPI gray Letter page is about 8 MB
+    private int queueDepth = Integer.getInteger("pdftotext.ocr.queueDepth", 4);
+    // Results of recently OCRed page images kept in memory; 0 turns the cache off
+    private int resultCacheMb = Integer.getInteger("pdftotext.ocr.cacheMb", 64);
+    // Page images without ink are returned as empty text without OCR
+    private boolean blankDetection = !Boolean.getBoolean("pdftotext.ocr.keepBlank");
+    // Render into page images reused from earlier pages instead of new ones
+    private boolean rasterPooling = !Boolean.getBoolean("pdftotext.ocr.noRasterPool");
+    // Page images larger than this many megapixels are recognized as tiles
+    // on several workers at once; 0 turns tiling off
+    private int tileMegapixels = Integer.getInteger("pdftotext.ocr.tileMegapixels", 0);
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        if (language.isEmpty()) {
+            throw new IllegalArgumentException("Language must not be empty");
+        }
+        this.language = language;
+    }
+    
+    public boolean isScriptDetection() {
+        return scriptDetection;
+    }
+    
+    public void setScriptDetection(boolean scriptDetection) {
+        this.scriptDetection = scriptDetection;
+    }
+    
+    // Latin is left to the main language: the script alone does not tell
+    // English from German
+    private static Map<String, String> defaultScriptLanguages() {
+        Map<String, String> languages = new LinkedHashMap<>();
+        languages.put("Cyrillic", "rus");
+        languages.put("Greek", "ell");
+        languages.put("Arabic", "ara");
+        languages.put("Hebrew", "heb");
+        languages.put("Han", "chi_sim");
+        languages.put("HanS", "chi_sim");
+        languages.put("HanT", "chi_tra");
+        languages.put("Japanese", "jpn");
+        languages.put("Korean", "kor");
+        languages.put("Hangul", "kor");
+        languages.put("Devanagari", "hin");
+        languages.put("Thai", "tha");
+        String overrides = System.getProperty("pdftotext.ocr.scriptLanguages");
+        if (overrides != null) {
+            putScriptLanguages(languages, overrides);
+        }
+        return languages;
+    }
+    
+    // The language for pages in script, the main language when none is set
+    public String getLanguageForScript(String script) {
+        String scriptLanguage = script == null ? null : scriptLanguages.get(script);
+        return scriptLanguage != null ? scriptLanguage : language;
+    }
+    
+    // Script=language pairs separated by commas, such as Latin=deu,Cyrillic=rus+ukr
+    public void setScriptLanguages(String mapping) {
+        putScriptLanguages(scriptLanguages, mapping);
+    }
+    
+    private static void putScriptLanguages(Map<String, String> languages, String mapping) {
+        for (String pair : mapping.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2 || parts[0].trim().isEmpty() || parts[1].trim().isEmpty()) {
+                throw new IllegalArgumentException("Expected script=language, such as Cyrillic=rus: " + pair);
+            }
+            languages.put(parts[0].trim(), parts[1].trim());
+        }
+    }
+    
+    public int getDpi() {
+        return dpi;
+    }
+    
+    // The resolution pages are rendered at, or the upper limit with adaptive DPI
+    public void setDpi(int dpi) {
+        if (dpi < 72) {
+            throw new IllegalArgumentException("DPI must be at least 72: " + dpi);
+        }
+        this.dpi = dpi;
+    }
+    
+    public boolean isAdaptiveDpi() {
+        return adaptiveDpi;
+    }
+    
+    public void setAdaptiveDpi(boolean adaptiveDpi) {
+        this.adaptiveDpi = adaptiveDpi;
+    }
+    
+    public ImageType getRenderMode() {
+        return renderMode;
+    }
+    
+    public void setRenderMode(ImageType renderMode) {
+        this.renderMode = renderMode;
+    }
+    
+    public boolean isEmbeddedImageOcr() {
+        return embeddedImageOcr;
+    }
+    
+    public void setEmbeddedImageOcr(boolean embeddedImageOcr) {
+        this.embeddedImageOcr = embeddedImageOcr;
+    }
+    
+    // gray, binary (black and white) or color
+    public static ImageType parseRenderMode(String mode) {
+        switch (mode.toLowerCase()) {
+            case "gray":
+                return ImageType.GRAY;
+            case "binary":
+                return ImageType.BINARY;
+            case "color":
+                return ImageType.RGB;
+            default:
+                throw new IllegalArgumentException("Unknown render mode: " + mode + " (expected gray, binary or color)");
+        }
+    }
+    
+    public int getPageSegMode() {
+        return pageSegMode;
+    }
+    
+    public void setPageSegMode(int pageSegMode) {
+        this.pageSegMode = pageSegMode;
+    }
+    
+    public int getOcrEngineMode() {
+        return ocrEngineMode;
+    }
+    
+    public void setOcrEngineMode(int ocrEngineMode) {
+        this.ocrEngineMode = ocrEngineMode;
+    }
+    
+    public int getWorkerCount() {
+        return workerCount;
+    }
+    
+    public void setWorkerCount(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+        }
+        this.workerCount = workerCount;
+    }
+    
+    public int getRenderThreadCount() {
+        return renderThreadCount;
+    }
+    
+    public void setRenderThreadCount(int renderThreadCount) {
+        if (renderThreadCount < 1) {
+            throw new IllegalArgumentException("Render thread count must be at least 1: " + renderThreadCount);
+        }
+        this.renderThreadCount = renderThreadCount;
+    }
+    
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+    
+    public void setQueueDepth(int queueDepth) {
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("Queue depth must be at least 1: " + queueDepth);
+        }
+        this.queueDepth = queueDepth;
+    }
+    
+    public int getResultCacheMb() {
+        return resultCacheMb;
+    }
+    
+    public void setResultCacheMb(int resultCacheMb) {
+        if (resultCacheMb < 0) {
+            throw new IllegalArgumentException("OCR cache size must not be negative: " + resultCacheMb);
+        }
+        this.resultCacheMb = resultCacheMb;
+    }
+    
+    public boolean isBlankDetection() {
+        return blankDetection;
+    }
+    
+    public void setBlankDetection(boolean blankDetection) {
+        this.blankDetection = blankDetection;
+    }
+    
+    public boolean isRasterPooling() {
+        return rasterPooling;
+    }
+    
+    public void setRasterPooling(boolean rasterPooling) {
+        this.rasterPooling = rasterPooling;
+    }
+    
+    public int getTileMegapixels() {
+        return tileMegapixels;
+    }
+    
+    public void setTileMegapixels(int tileMegapixels) {
+        if (tileMegapixels < 0) {
+            throw new IllegalArgumentException("Tile threshold must not be negative: " + tileMegapixels);
+        }
+        this.tileMegapixels = tileMegapixels;
+    }
+    
+    // Settings that change the recognized text; used in cache keys
+    public String getCacheKey() {
+        return "lang=" + language + ";dpi=" + dpi + (adaptiveDpi ? "-adaptive" : "") + ";render=" + renderMode
+               + (embeddedImageOcr ? ";embedded" : "")
+               + ";psm=" + pageSegMode + ";oem=" + ocrEngineMode + (blankDetection ? ";blank" : "")
+               + (tileMegapixels > 0 ? ";tiles=" + tileMegapixels : "")
+               + (scriptDetection ? ";scripts=" + scriptLanguages : "");
+    }
+}
@@ -0,0 +1,107 @@
+package pdftotext;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+// What Tesseract's orientation and script detection found on a page: which
+// way round the text is and what script it is in, each with Tesseract's
+// confidence. Also turns page images upright and maps word boxes found on an
+// upright image back onto the page as it is.
+public class OrientationScript {
+    
+    private final int orientation;
+    private final float orientationConfidence;
+    private final String script;
+    private final float scriptConfidence;
+    
+    public OrientationScript(int orientation, float orientationConfidence, String script, float scriptConfidence) {
+        this.orientation = orientation;
+        this.orientationConfidence = orientationConfidence;
+        this.script = script;
+        this.scriptConfidence = scriptConfidence;
+    }
+    
+    // How far the text is turned counter-clockwise: 0, 90, 180 or 270
+    public int getOrientation() {
+        return orientation;
+    }
+    
+    // Degrees clockwise that make the page upright
+    public int getRotation() {
+        return (360 - orientation) % 360;
+    }
+    
+    public float getOrientationConfidence() {
+        return orientationConfidence;
+    }
+    
+    // Tesseract's script name, such as Latin, Cyrillic or Han; may be null
+    public String getScript() {
+        return script;
+    }
+    
+    public float getScriptConfidence() {
+        return scriptConfidence;
+    }
+    
+    // A copy of the image turned clockwise by 90, 180 or 270 degrees. Gray
+    // and black and white images keep their type, others become gray.
+    public static BufferedImage rotate(BufferedImage image, int degrees) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean sideways = degrees == 90 || degrees == 270;
+        int type = image.getType() == BufferedImage.TYPE_BYTE_BINARY ? BufferedImage.TYPE_BYTE_BINARY
+                   : BufferedImage.TYPE_BYTE_GRAY;
+        BufferedImage rotated = new BufferedImage(sideways ? height : width, sideways ? width : height, type);
+        AffineTransform transform = new AffineTransform();
+        if (degrees == 90) {
+            transform.translate(height, 0);
+        } else if (degrees == 180) {
+            transform.translate(width, height);
+        } else if (degrees == 270) {
+            transform.translate(0, width);
+        }
+        transform.rotate(Math.toRadians(degrees));
+        Graphics2D g = rotated.createGraphics();
+        try {
+            g.drawImage(image, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return rotated;
+    }
+    
+    // Moves words found on an image turned clockwise by degrees back to where
+    // they are on the page as it is; width and height are the page's, in points
+    public static List<WordBox> rotateBack(List<WordBox> words, int degrees, float width, float height) {
+        List<WordBox> moved = new ArrayList<>(words.size());
+        for (WordBox word : words) {
+            float left = word.getLeft();
+            float top = word.getTop();
+            float right = word.getRight();
+            float bottom = word.getBottom();
+            if (degrees == 90) {
+                moved.add(new WordBox(word.getText(), top, height - right, bottom, height - left,
+                                      word.getConfidence(), word.getLine()));
+            } else if (degrees == 180) {
+                moved.add(new WordBox(word.getText(), width - right, height - bottom, width - left, height - top,
+                                      word.getConfidence(), word.getLine()));
+            } else if (degrees == 270) {
+                moved.add(new WordBox(word.getText(), width - bottom, left, width - top, right,
+                                      word.getConfidence(), word.getLine()));
+            } else {
+                moved.add(word);
+            }
+        }
+        return moved;
+    }
+    
+    @Override
+    public String toString() {
+        return "orientation " + orientation + " (confidence " + orientationConfidence + "), script " + script
+               + " (confidence " + scriptConfidence + ")";
+    }
+}
@@ -0,0 +1,71 @@
+package pdftotext;
+
+import java.io.Writer;
+import java.util.Locale;
+
+// The formats extracted pages can be written in. Every format is written page
+// by page as extraction goes, so a reader can start on the first pages while
+// later ones are still being recognized.
+public enum OutputFormat {
+    TEXT("text", ".txt", "text/plain; charset=utf-8"),
+    JSONL("jsonl", ".jsonl", "application/x-ndjson; charset=utf-8"),
+    HOCR("hocr", ".hocr", "text/html; charset=utf-8"),
+    ALTO("alto", ".alto.xml", "application/xml; charset=utf-8");
+    
+    private final String name;
+    private final String extension;
+    private final String contentType;
+    
+    OutputFormat(String name, String extension, String contentType) {
+        this.name = name;
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+    
+    public static OutputFormat parse(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name.equals(name.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown output format: " + name + " (use text, jsonl, hocr or alto)");
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public PageSink createWriter(Writer out) {
+        switch (this) {
+            case JSONL:
+                return new JsonLinesPageWriter(out);
+            case HOCR:
+                return new HocrPageWriter(out);
+            case ALTO:
+                return new AltoPageWriter(out);
+            default:
+                return new TextPageWriter(out);
+        }
+    }
+    
+    // What to append when extraction fails after part of the output is written
+    public String formatError(String message) {
+        switch (this) {
+            case JSONL:
+                return "{\"error\": " + Json.quote(message) + "}\n";
+            case HOCR:
+            case ALTO:
+                return "\n<!-- Error: " + Xml.escape(message).replace("--", "- -") + " -->\n";
+            default:
+                return "\nError: " + message + "\n";
+        }
+    }
+}
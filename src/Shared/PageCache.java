@@ -0,0 +1,177 @@
+package pdftotext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent cache of extracted pages, keyed by the page's fingerprint
+// together with the extraction settings. When a document changes, for example
+// through an incremental update that appends a page or adds a signature, its
+// unchanged pages are found here and only the new or changed pages are
+// stripped or OCRed again. Entries are evicted least recently used first.
+public class PageCache {
+    
+    // Bump when the entry layout changes so old entries are not reused
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".page";
+    // The directory is only scanned for eviction every so many new entries
+    private static final int EVICT_INTERVAL = 64;
+    
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    
+    public PageCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory.toPath();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+    }
+    
+    public String key(String fingerprint, String settingsKey) {
+        MessageDigest digest = PageFingerprinter.sha256();
+        digest.update((fingerprint + ";" + FORMAT_VERSION + ";" + settingsKey).getBytes(StandardCharsets.UTF_8));
+        return PageFingerprinter.hex(digest.digest());
+    }
+    
+    // The stored page renumbered as pageNumber, or null on a miss. An entry
+    // stored without words does not count when words are wanted.
+    public PageResult get(String key, int pageNumber, boolean needWords) {
+        Path entry = entryPath(key);
+        PageResult page;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            page = readPage(in, pageNumber);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // Truncated or from an incompatible version; it is replaced
+            misses.incrementAndGet();
+            return null;
+        }
+        if (needWords && page.getWords() == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted while it was being read
+        }
+        return page;
+    }
+    
+    // Failures are reported and otherwise ignored; the page is simply
+    // extracted again next time
+    public void put(String key, PageResult page) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writePage(out, page);
+            }
+            Files.move(temp, entryPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            if (stores.incrementAndGet() % EVICT_INTERVAL == 0) {
+                evict();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not store page " + page.getPageNumber() + " in the page cache: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Left for the next eviction scan to ignore
+                }
+            }
+        }
+    }
+    
+    private static void writePage(DataOutputStream out, PageResult page) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(page.getMethod().name());
+        byte[] text = page.getText().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+        out.writeFloat(page.getWidth());
+        out.writeFloat(page.getHeight());
+        List<WordBox> words = page.getWords();
+        out.writeInt(words == null ? -1 : words.size());
+        if (words != null) {
+            for (WordBox word : words) {
+                out.writeUTF(word.getText());
+                out.writeFloat(word.getLeft());
+                out.writeFloat(word.getTop());
+                out.writeFloat(word.getRight());
+                out.writeFloat(word.getBottom());
+                out.writeFloat(word.getConfidence());
+                out.writeInt(word.getLine());
+            }
+        }
+    }
+    
+    private static PageResult readPage(DataInputStream in, int pageNumber) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown page cache entry version");
+        }
+        ExtractionMethod method = ExtractionMethod.valueOf(in.readUTF());
+        byte[] text = new byte[in.readInt()];
+        in.readFully(text);
+        float width = in.readFloat();
+        float height = in.readFloat();
+        int wordCount = in.readInt();
+        List<WordBox> words = null;
+        if (wordCount >= 0) {
+            words = new ArrayList<>(wordCount);
+            for (int i = 0; i < wordCount; i++) {
+                words.add(new WordBox(in.readUTF(), in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+                                      in.readFloat(), in.readInt()));
+            }
+        }
+        return new PageResult(pageNumber, new String(text, StandardCharsets.UTF_8), method, width, height, words);
+    }
+    
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+    
+    private synchronized void evict() throws IOException {
+        evictions.addAndGet(CacheEviction.evict(directory, ENTRY_SUFFIX, maxBytes));
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "Page cache: " + hits.get() + " hits, " + misses.get() + " misses, "
+               + evictions.get() + " evictions (" + directory + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package pdftotext;
+
+import java.io.IOException;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+// What a page is made of, found from one pass over its content stream
+// without extracting text, loading fonts or rendering anything: how many
+// text-showing operators it has, how much of it is covered by images and
+// whether it draws anything else. From that the
+// extraction strategy for the page is chosen up front, so scanned pages skip
+// the text stripper and blank pages skip both stripping and OCR.
+public class PageClassification {
+    
+    public enum Strategy {
+        // Text operators present: strip the text layer (still OCRed when it
+        // turns out to hold too little text)
+        TEXT_LAYER,
+        // Drawn without any text operators, such as a scan: OCR directly
+        OCR,
+        // Nothing drawn at all
+        BLANK
+    }
+    
+    private static final COSName ANNOTS = COSName.getPDFName("Annots");
+    
+    private final int textOperators;
+    private final float imageCoverage;
+    private final boolean vectorContent;
+    private final Strategy strategy;
+    private final PageImageLocator content;
+    
+    private PageClassification(PageImageLocator content, float imageCoverage, boolean annotations) {
+        this.content = content;
+        this.textOperators = content.getTextOperators();
+        this.imageCoverage = imageCoverage;
+        this.vectorContent = content.hasVectorContent();
+        if (textOperators > 0) {
+            strategy = Strategy.TEXT_LAYER;
+        } else if (vectorContent || !content.getImages().isEmpty() || annotations) {
+            // Annotations such as filled form fields show up when rendered
+            strategy = Strategy.OCR;
+        } else {
+            strategy = Strategy.BLANK;
+        }
+    }
+    
+    public static PageClassification classify(PDPage page) throws IOException {
+        PageImageLocator content = PageImageLocator.locate(page);
+        
+        PDRectangle box = page.getCropBox();
+        float pageArea = box.getWidth() * box.getHeight();
+        float imageArea = 0;
+        for (PageImageLocator.PlacedImage image : content.getImages()) {
+            imageArea += image.getArea();
+        }
+        float coverage = pageArea <= 0 ? 0 : Math.min(1, imageArea / pageArea);
+        
+        return new PageClassification(content, coverage, page.getCOSObject().containsKey(ANNOTS));
+    }
+    
+    public Strategy getStrategy() {
+        return strategy;
+    }
+    
+    public int getTextOperators() {
+        return textOperators;
+    }
+    
+    // Share of the page covered by images, 0 to 1; overlapping images count twice
+    public float getImageCoverage() {
+        return imageCoverage;
+    }
+    
+    public int getImageCount() {
+        return content.getImages().size();
+    }
+    
+    public boolean hasVectorContent() {
+        return vectorContent;
+    }
+    
+    // The images found while classifying, for choosing how to OCR the page
+    public PageImageLocator getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,145 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+// A SHA-256 over everything that decides what a page looks like: its content
+// streams, its resources (fonts, images, forms) with their stream data, its
+// annotations, its boxes and its rotation. Two pages with the same fingerprint
+// extract to the same text, wherever they are in whichever file. Links back
+// up the page tree are left out, so adding pages elsewhere in a document does
+// not change the fingerprints of the pages already there.
+//
+// One instance per document copy and thread; the digests of streams shared
+// between pages, like fonts, are remembered so they are only read once.
+public class PageFingerprinter {
+    
+    private static final COSName PARENT = COSName.getPDFName("Parent");
+    // An annotation's page
+    private static final COSName PAGE = COSName.getPDFName("P");
+    
+    private final Map<COSStream, byte[]> streamDigests = new IdentityHashMap<>();
+    
+    public String fingerprint(PDPage page) throws IOException {
+        MessageDigest digest = sha256();
+        Map<COSBase, Integer> visited = new IdentityHashMap<>();
+        update(digest, page.getCOSObject(), visited);
+        // Inherited from the page tree when the page does not set them
+        if (page.getResources() != null) {
+            update(digest, page.getResources().getCOSObject(), visited);
+        }
+        update(digest, "media " + box(page.getMediaBox()) + " crop " + box(page.getCropBox()) + " rotate " + page.getRotation());
+        return hex(digest.digest());
+    }
+    
+    private void update(MessageDigest digest, COSBase base, Map<COSBase, Integer> visited) throws IOException {
+        if (base instanceof COSObject) {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null) {
+            update(digest, "null");
+            return;
+        }
+        
+        // Objects seen before are referred to by the order they were first
+        // seen in, which keeps cycles finite and the result stable
+        Integer seen = visited.get(base);
+        if (seen != null) {
+            update(digest, "ref " + seen);
+            return;
+        }
+        
+        if (base instanceof COSDictionary) {
+            visited.put(base, visited.size());
+            COSDictionary dictionary = (COSDictionary) base;
+            update(digest, "<<");
+            for (COSName key : dictionary.keySet()) {
+                if (key.equals(PARENT) || key.equals(PAGE)) {
+                    continue;
+                }
+                update(digest, "/" + key.getName());
+                update(digest, dictionary.getItem(key), visited);
+            }
+            update(digest, ">>");
+            if (base instanceof COSStream) {
+                digest.update(streamDigest((COSStream) base));
+            }
+        } else if (base instanceof COSArray) {
+            visited.put(base, visited.size());
+            COSArray array = (COSArray) base;
+            update(digest, "[");
+            for (int i = 0; i < array.size(); i++) {
+                update(digest, array.get(i), visited);
+            }
+            update(digest, "]");
+        } else if (base instanceof COSString) {
+            update(digest, "(");
+            digest.update(((COSString) base).getBytes());
+            update(digest, ")");
+        } else if (base instanceof COSName) {
+            update(digest, "/" + ((COSName) base).getName());
+        } else {
+            // Numbers, booleans and null print their value
+            update(digest, base.toString());
+        }
+    }
+    
+    // The stream data as stored in the file, without decoding it
+    private byte[] streamDigest(COSStream stream) throws IOException {
+        byte[] known = streamDigests.get(stream);
+        if (known != null) {
+            return known;
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = stream.createRawInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        byte[] result = digest.digest();
+        streamDigests.put(stream, result);
+        return result;
+    }
+    
+    private static void update(MessageDigest digest, String token) {
+        digest.update(token.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+    
+    private static String box(PDRectangle box) {
+        return box == null ? "none" : box.getLowerLeftX() + " " + box.getLowerLeftY() + " "
+                                      + box.getUpperRightX() + " " + box.getUpperRightY();
+    }
+    
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
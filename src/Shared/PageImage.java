@@ -0,0 +1,40 @@
+package pdftotext;
+
+import java.awt.image.BufferedImage;
+
+// A page image ready for OCR together with its resolution, which Tesseract
+// needs to judge text size
+public class PageImage {
+    
+    private final BufferedImage image;
+    private final int dpi;
+    // Where the image goes back once recognized; null when it is not pooled
+    private RasterPool pool;
+    
+    public PageImage(BufferedImage image, int dpi) {
+        this(image, dpi, null);
+    }
+    
+    public PageImage(BufferedImage image, int dpi, RasterPool pool) {
+        this.image = image;
+        this.dpi = dpi;
+        this.pool = pool;
+    }
+    
+    public BufferedImage getImage() {
+        return image;
+    }
+    
+    public int getDpi() {
+        return dpi;
+    }
+    
+    // Hands a pooled image back for the next page; the image must not be
+    // used after this. Images that are never released are simply collected.
+    public void release() {
+        if (pool != null) {
+            pool.release(image);
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pdftotext;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.util.Matrix;
+
+// Walks a page's content stream and records where images are drawn and how
+// large, without decoding them or rasterizing anything. A scanned page is
+// usually one image stretched over the page, and its pixel size against the
+// space it covers gives the resolution the scanner used. Text-showing
+// operators are only counted, and operators that would look up a font (Tf,
+// and gs, whose parameters may name one) are skipped, so no fonts are loaded.
+public class PageImageLocator extends PDFGraphicsStreamEngine {
+    
+    private final List<PlacedImage> images = new ArrayList<>();
+    private final Point2D.Float currentPoint = new Point2D.Float();
+    private boolean vectorContent;
+    private int textOperators;
+    
+    private PageImageLocator(PDPage page) {
+        super(page);
+    }
+    
+    public static PageImageLocator locate(PDPage page) throws IOException {
+        PageImageLocator locator = new PageImageLocator(page);
+        locator.processPage(page);
+        return locator;
+    }
+    
+    public List<PlacedImage> getImages() {
+        return images;
+    }
+    
+    // True if the page also paints paths, shadings or text, which an image of
+    // the page alone would miss
+    public boolean hasVectorContent() {
+        return vectorContent;
+    }
+    
+    // Tj, TJ, ' and " operators, including those in form XObjects
+    public int getTextOperators() {
+        return textOperators;
+    }
+    
+    // The image covering the largest part of the page, or null if there is none
+    public PlacedImage getLargestImage() {
+        PlacedImage largest = null;
+        for (PlacedImage image : images) {
+            if (largest == null || image.getArea() > largest.getArea()) {
+                largest = image;
+            }
+        }
+        return largest;
+    }
+    
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        String name = operator.getName();
+        if (name.equals("Tj") || name.equals("TJ") || name.equals("'") || name.equals("\"")) {
+            vectorContent = true;
+            textOperators++;
+            // Showing the text would load the font and walk every glyph
+            return;
+        }
+        if (name.equals("Tf") || name.equals("gs")) {
+            // Both resolve fonts, and neither moves what is drawn
+            return;
+        }
+        super.processOperator(operator, operands);
+    }
+    
+    @Override
+    public void drawImage(PDImage image) {
+        images.add(new PlacedImage(image, getGraphicsState().getCurrentTransformationMatrix()));
+    }
+    
+    // Paths only need to be followed far enough to keep the stream engine happy
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        currentPoint.setLocation(p0);
+    }
+    
+    @Override
+    public void clip(int windingRule) {
+    }
+    
+    @Override
+    public void moveTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+    
+    @Override
+    public void lineTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+    
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        currentPoint.setLocation(x3, y3);
+    }
+    
+    @Override
+    public Point2D getCurrentPoint() {
+        return currentPoint;
+    }
+    
+    @Override
+    public void closePath() {
+    }
+    
+    @Override
+    public void endPath() {
+    }
+    
+    @Override
+    public void strokePath() {
+        vectorContent = true;
+    }
+    
+    @Override
+    public void fillPath(int windingRule) {
+        vectorContent = true;
+    }
+    
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        vectorContent = true;
+    }
+    
+    @Override
+    public void shadingFill(COSName shadingName) {
+        vectorContent = true;
+    }
+    
+    // An image and the transform that maps its unit square onto the page
+    public static class PlacedImage {
+        private final PDImage image;
+        private final float scaleX;
+        private final float shearY;
+        private final float shearX;
+        private final float scaleY;
+        private final float translateX;
+        private final float translateY;
+        
+        PlacedImage(PDImage image, Matrix ctm) {
+            // The matrix object keeps changing as the stream is processed
+            this.image = image;
+            this.scaleX = ctm.getScaleX();
+            this.shearY = ctm.getShearY();
+            this.shearX = ctm.getShearX();
+            this.scaleY = ctm.getScaleY();
+            this.translateX = ctm.getTranslateX();
+            this.translateY = ctm.getTranslateY();
+        }
+        
+        public PDImage getImage() {
+            return image;
+        }
+        
+        // Width and height as drawn, in points
+        public float getWidth() {
+            return (float) Math.hypot(scaleX, shearY);
+        }
+        
+        public float getHeight() {
+            return (float) Math.hypot(shearX, scaleY);
+        }
+        
+        // Area covered on the page, in square points
+        public float getArea() {
+            return Math.abs(scaleX * scaleY - shearY * shearX);
+        }
+        
+        // Pixels per inch as drawn; the higher axis if the image is stretched
+        public float getDpi() {
+            float width = getWidth();
+            float height = getHeight();
+            if (width == 0 || height == 0) {
+                return 0;
+            }
+            return Math.max(image.getWidth() * 72f / width, image.getHeight() * 72f / height);
+        }
+        
+        // True when the image is drawn upright, neither rotated nor mirrored,
+        // so its pixel rows run the same way as the page's
+        public boolean isUpright() {
+            return shearX == 0 && shearY == 0 && scaleX > 0 && scaleY > 0;
+        }
+        
+        // Fraction of the box covered by an upright image
+        public float getCoverage(PDRectangle box) {
+            float width = Math.min(translateX + scaleX, box.getUpperRightX()) - Math.max(translateX, box.getLowerLeftX());
+            float height = Math.min(translateY + scaleY, box.getUpperRightY()) - Math.max(translateY, box.getLowerLeftY());
+            if (width <= 0 || height <= 0) {
+                return 0;
+            }
+            return width * height / (box.getWidth() * box.getHeight());
+        }
+    }
+}
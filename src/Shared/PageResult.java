@@ -0,0 +1,53 @@
+package pdftotext;
+
+import java.util.List;
+
+public class PageResult {
+    
+    private final int pageNumber;
+    private final String text;
+    private final ExtractionMethod method;
+    private final float width;
+    private final float height;
+    private final List<WordBox> words;
+    
+    public PageResult(int pageNumber, String text, ExtractionMethod method) {
+        this(pageNumber, text, method, 0, 0, null);
+    }
+    
+    public PageResult(int pageNumber, String text, ExtractionMethod method, float width, float height, List<WordBox> words) {
+        this.pageNumber = pageNumber;
+        this.text = text;
+        this.method = method;
+        this.width = width;
+        this.height = height;
+        this.words = words;
+    }
+    
+    // 1-based, as printed in the "--- Page N ---" header
+    public int getPageNumber() {
+        return pageNumber;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public ExtractionMethod getMethod() {
+        return method;
+    }
+    
+    // Page size as displayed, in points; 0 when not known
+    public float getWidth() {
+        return width;
+    }
+    
+    public float getHeight() {
+        return height;
+    }
+    
+    // null unless the sink asked for words
+    public List<WordBox> getWords() {
+        return words;
+    }
+}
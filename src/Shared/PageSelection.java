@@ -0,0 +1,132 @@
+package pdftotext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Which pages of a document to extract and when to stop early. Pages that are
+// not selected are never stripped or rendered, so triage runs that only need
+// the first pages, a sample, or a limited amount of text skip most of the work.
+public class PageSelection {
+    
+    private String ranges = "";
+    private final List<int[]> parsedRanges = new ArrayList<>();
+    private int every = 1;
+    private long maxChars;
+    private long maxMillis;
+    
+    // All pages, no budget
+    public PageSelection() {
+    }
+    
+    public String getRanges() {
+        return ranges;
+    }
+    
+    // Comma-separated 1-based pages and ranges such as "1-5,8,20-"; an open
+    // end runs to the last page. Empty selects every page.
+    public void setRanges(String ranges) {
+        List<int[]> parsed = new ArrayList<>();
+        for (String part : ranges.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            try {
+                int first = Integer.parseInt(dash < 0 ? part : part.substring(0, dash).trim());
+                int last = dash < 0 ? first
+                    : dash == part.length() - 1 ? Integer.MAX_VALUE : Integer.parseInt(part.substring(dash + 1).trim());
+                if (first < 1 || last < first) {
+                    throw new IllegalArgumentException("Invalid page range: " + part);
+                }
+                parsed.add(new int[] { first, last });
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page range: " + part);
+            }
+        }
+        this.ranges = ranges.trim();
+        parsedRanges.clear();
+        parsedRanges.addAll(parsed);
+    }
+    
+    public int getEvery() {
+        return every;
+    }
+    
+    // Takes only the first of every n selected pages
+    public void setEvery(int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("Page sampling interval must be at least 1: " + every);
+        }
+        this.every = every;
+    }
+    
+    public long getMaxChars() {
+        return maxChars;
+    }
+    
+    // Stops taking new pages once this many characters are extracted; 0 for no limit
+    public void setMaxChars(long maxChars) {
+        if (maxChars < 0) {
+            throw new IllegalArgumentException("Character budget must not be negative: " + maxChars);
+        }
+        this.maxChars = maxChars;
+    }
+    
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+    
+    // Stops taking new pages after this long per document; 0 for no limit.
+    // Pages already being recognized are finished and written.
+    public void setMaxMillis(long maxMillis) {
+        if (maxMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative: " + maxMillis);
+        }
+        this.maxMillis = maxMillis;
+    }
+    
+    public boolean hasTimeBudget() {
+        return maxMillis > 0;
+    }
+    
+    // The 0-based indexes of the selected pages of a document, in order
+    public int[] selectPages(int pageCount) {
+        int[] pages = new int[pageCount];
+        int selected = 0;
+        int matched = 0;
+        for (int page = 0; page < pageCount; page++) {
+            if (isInRanges(page + 1) && matched++ % every == 0) {
+                pages[selected++] = page;
+            }
+        }
+        int[] result = new int[selected];
+        System.arraycopy(pages, 0, result, 0, selected);
+        return result;
+    }
+    
+    private boolean isInRanges(int pageNumber) {
+        if (parsedRanges.isEmpty()) {
+            return true;
+        }
+        for (int[] range : parsedRanges) {
+            if (pageNumber >= range[0] && pageNumber <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Whether a document has used up its budget after emitting chars characters
+    // since startNanos
+    public boolean isExhausted(long chars, long startNanos) {
+        return (maxChars > 0 && chars >= maxChars)
+               || (maxMillis > 0 && System.nanoTime() - startNanos >= maxMillis * 1_000_000L);
+    }
+    
+    // The parts that change which text comes out; a time budget is left out
+    // since its result is not reproducible anyway
+    public String getCacheKey() {
+        return "pages=" + ranges + ";every=" + every + ";maxChars=" + maxChars;
+    }
+}
@@ -0,0 +1,26 @@
+package pdftotext;
+
+import java.io.IOException;
+
+// Receives extracted pages one at a time, in page order, as soon as each page
+// and every page before it are finished.
+public interface PageSink {
+    
+    void pageExtracted(PageResult page) throws IOException;
+    
+    // Whether pages should carry word bounding boxes, which costs a little
+    // extra work per word
+    default boolean wantsWords() {
+        return false;
+    }
+    
+    // Checked between pages; once it returns true no further pages are
+    // stripped or OCRed and the extraction ends with a CancellationException
+    default boolean isCancelled() {
+        return false;
+    }
+    
+    // Called once after the last page, to close whatever the format opened
+    default void finish() throws IOException {
+    }
+}
@@ -0,0 +1,75 @@
+package pdftotext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// Counts the revisions of a PDF file. Every incremental update (a signature,
+// a filled form, an appended page) adds a new section to the end of the file
+// that finishes with its own %%EOF marker, so a file saved once has one and
+// each update adds one. Linearized files carry an extra marker after their
+// first-page section, which is not counted. Only the tail of the file is
+// read, where updates are appended, so a multi-gigabyte archive costs a few
+// megabytes of reading; revisions that end before it are not counted.
+public final class PdfRevisions {
+    
+    private static final byte[] EOF_MARKER = "%%EOF".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = 1024;
+    private static final int TAIL_BYTES = 8 * 1024 * 1024;
+    private static final int BLOCK_BYTES = 64 * 1024;
+    
+    private PdfRevisions() {
+    }
+    
+    public static int count(File pdfFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(pdfFile.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = Math.max(0, length - TAIL_BYTES);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+            byte[] bytes = block.array();
+            int markers = 0;
+            int matched = 0;
+            long position = start;
+            while (position < length) {
+                block.clear();
+                int read = channel.read(block, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                for (int i = 0; i < read; i++) {
+                    byte b = bytes[i];
+                    if (b == EOF_MARKER[matched]) {
+                        matched++;
+                        if (matched == EOF_MARKER.length) {
+                            markers++;
+                            matched = 0;
+                        }
+                    } else if (b == '%') {
+                        // "%%%EOF" still ends in a marker
+                        matched = matched >= 2 ? 2 : 1;
+                    } else {
+                        matched = 0;
+                    }
+                }
+            }
+            // The extra marker of a linearized file is near its start, so it
+            // is only in the tail when the tail is the whole file
+            if (start == 0 && markers > 1 && isLinearized(channel)) {
+                markers--;
+            }
+            return Math.max(1, markers);
+        }
+    }
+    
+    private static boolean isLinearized(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Reads until the header is full or the file ends
+        }
+        return new String(header.array(), 0, header.position(), StandardCharsets.ISO_8859_1).contains("/Linearized");
+    }
+}
@@ -0,0 +1,73 @@
+package pdftotext;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Page images handed back after OCR, kept for the next page of the same size
+// and type. A 300 DPI gray Letter page is about 8 MB; allocating one per page
+// makes rendering the biggest source of garbage, and the GC has to move or
+// clear those arrays again and again. Pages of a document are nearly always
+// the same size, so the rendering of one page is drawn over the previous one.
+public class RasterPool {
+    
+    private final int maxIdle;
+    // Most recently returned last
+    private final ArrayDeque<BufferedImage> idle = new ArrayDeque<>();
+    private long reused;
+    private long allocated;
+    private long discarded;
+    
+    public RasterPool(int maxIdle) {
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Raster pool size must be at least 1: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+    }
+    
+    // An image of exactly this size and BufferedImage type. Its pixels are
+    // whatever the previous page left behind.
+    public BufferedImage take(int width, int height, int type) {
+        synchronized (this) {
+            Iterator<BufferedImage> images = idle.descendingIterator();
+            while (images.hasNext()) {
+                BufferedImage image = images.next();
+                if (image.getWidth() == width && image.getHeight() == height && image.getType() == type) {
+                    images.remove();
+                    reused++;
+                    return image;
+                }
+            }
+            allocated++;
+        }
+        return new BufferedImage(width, height, type);
+    }
+    
+    // The image must not be used after this
+    public synchronized void release(BufferedImage image) {
+        idle.addLast(image);
+        // A document with different page sizes pushes out the oldest sizes
+        while (idle.size() > maxIdle) {
+            idle.removeFirst();
+            discarded++;
+        }
+    }
+    
+    public synchronized long getReused() {
+        return reused;
+    }
+    
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+    
+    public synchronized long getDiscarded() {
+        return discarded;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "Raster pool: " + reused + " reused, " + allocated + " allocated, " + discarded + " discarded, "
+               + idle.size() + " idle";
+    }
+}
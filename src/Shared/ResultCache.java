@@ -0,0 +1,191 @@
+package pdftotext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent cache of extracted text, keyed by the SHA-256 of the PDF's bytes
+// together with the extraction settings. A hit streams the stored text back
+// without loading the PDF. Entries are evicted least recently used first once
+// the cache grows past its size limit; a hit refreshes the entry's timestamp.
+public class ResultCache {
+    
+    // Bump when the output format changes so old entries are not reused
+    private static final String FORMAT_VERSION = "1";
+    private static final String ENTRY_SUFFIX = ".txt";
+    
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    public ResultCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory.toPath();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+    }
+    
+    public static File defaultDirectory() {
+        return new File(System.getProperty("user.home"), ".cache/pdftotext");
+    }
+    
+    public String key(File pdfFile, String settingsKey) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(pdfFile.toPath()), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) != -1) {
+                    // Reading updates the digest
+                }
+            }
+            digest.update((";" + FORMAT_VERSION + ";" + settingsKey).getBytes(StandardCharsets.UTF_8));
+            
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    // Copies the cached text for key to out and returns true on a hit.
+    // Otherwise runs the extraction, which writes to both out and a new cache
+    // entry; the entry is only kept if the extraction completes and reports
+    // that its output may be stored.
+    public boolean readOrExtract(String key, Writer out, Extraction extraction) throws IOException {
+        if (read(key, out)) {
+            return true;
+        }
+        
+        Path entry = entryPath(key);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        boolean stored = false;
+        try {
+            boolean cacheable;
+            try (Writer cacheOut = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                cacheable = extraction.run(new TeeWriter(out, cacheOut));
+            }
+            if (cacheable) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        evict();
+        return false;
+    }
+    
+    private boolean read(String key, Writer out) throws IOException {
+        Path entry = entryPath(key);
+        BufferedReader in;
+        try {
+            in = Files.newBufferedReader(entry, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return false;
+        }
+        
+        try {
+            char[] buffer = new char[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.flush();
+        } finally {
+            in.close();
+        }
+        hits.incrementAndGet();
+        
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // Evicted while it was being read
+        }
+        return true;
+    }
+    
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+    
+    private synchronized void evict() throws IOException {
+        evictions.addAndGet(CacheEviction.evict(directory, ENTRY_SUFFIX, maxBytes));
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "Result cache: " + hits.get() + " hits, " + misses.get() + " misses, "
+               + evictions.get() + " evictions (" + directory + ")";
+    }
+    
+    public interface Extraction {
+        // Returns false when the output must not be stored, such as when OCR
+        // failed on a page and a later run may well succeed
+        boolean run(Writer out) throws IOException;
+    }
+    
+    private static class TeeWriter extends Writer {
+        private final Writer first;
+        private final Writer second;
+        
+        TeeWriter(Writer first, Writer second) {
+            this.first = first;
+            this.second = second;
+        }
+        
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            first.write(buffer, offset, length);
+            second.write(buffer, offset, length);
+        }
+        
+        @Override
+        public void write(String text) throws IOException {
+            first.write(text);
+            second.write(text);
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+        
+        // The writers are owned by the caller and the cache
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package pdftotext;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput counters for one stage of the OCR pipeline. Busy time is the time
+// spent doing the stage's work. Wait time is time lost at the queue between
+// the stages: renderers blocked because the queue is full, or rendered pages
+// sitting in the queue before an OCR worker picks them up. Whichever stage
+// the other one waits for is the bottleneck. Stages count pages unless they
+// are created with another unit, as document loading is.
+public class StageStats implements StageStatsMBean {
+    
+    private final String name;
+    private final String unit;
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    
+    public StageStats(String name) {
+        this(name, "pages");
+    }
+    
+    public StageStats(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+    
+    public void recordPage(long nanos) {
+        pages.incrementAndGet();
+        busyNanos.addAndGet(nanos);
+    }
+    
+    public void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public String getUnit() {
+        return unit;
+    }
+    
+    @Override
+    public long getPages() {
+        return pages.get();
+    }
+    
+    @Override
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+    
+    @Override
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+    
+    // Pages (or other units) per second of busy time for a single thread of this stage
+    @Override
+    public double getPagesPerSecond() {
+        long busy = busyNanos.get();
+        return busy == 0 ? 0.0 : pages.get() * 1_000_000_000.0 / busy;
+    }
+    
+    @Override
+    public String toString() {
+        long busy = busyNanos.get();
+        long wait = waitNanos.get();
+        long total = busy + wait;
+        return String.format("%s: %d %s, %.2f %s/s per thread, %.1f s busy, %.1f s queue wait (%.0f%%)",
+            name, pages.get(), unit, getPagesPerSecond(), unit, busy / 1e9, wait / 1e9,
+            total == 0 ? 0.0 : wait * 100.0 / total);
+    }
+}
@@ -0,0 +1,18 @@
+package pdftotext;
+
+// JMX view of one pipeline stage
+public interface StageStatsMBean {
+    
+    String getName();
+    
+    // What getPages counts: "pages", or "documents" for loading
+    String getUnit();
+    
+    long getPages();
+    
+    long getBusyNanos();
+    
+    long getWaitNanos();
+    
+    double getPagesPerSecond();
+}
@@ -0,0 +1,140 @@
+package pdftotext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.sourceforge.tess4j.TesseractException;
+
+// Warm Tesseract engines for every language that pages are routed to, at
+// most capacity of them in all, since each holds its language model in
+// memory. Engines are created the first time a language needs one. When a
+// language needs an engine and the pool is full, the idle engine of another
+// language that has waited longest is closed to make room; otherwise the
+// caller waits for one to be handed back.
+public class TesseractPool implements AutoCloseable {
+    
+    private final String tessdataPath;
+    private final OcrSettings settings;
+    private final int capacity;
+    // Longest idle first
+    private final ArrayDeque<WarmTesseract> idle = new ArrayDeque<>();
+    private final List<WarmTesseract> engines = new ArrayList<>();
+    // Engines that exist or are being created
+    private int reserved;
+    private long evictions;
+    
+    public TesseractPool(String tessdataPath, OcrSettings settings, int capacity) {
+        this.tessdataPath = tessdataPath;
+        this.settings = settings;
+        this.capacity = capacity;
+    }
+    
+    public WarmTesseract borrow(String language) throws TesseractException, InterruptedException {
+        WarmTesseract evicted;
+        synchronized (this) {
+            while (true) {
+                WarmTesseract engine = takeIdle(language);
+                if (engine != null) {
+                    return engine;
+                }
+                if (reserved < capacity) {
+                    reserved++;
+                    evicted = null;
+                    break;
+                }
+                if (!idle.isEmpty()) {
+                    // None of the idle engines has this language
+                    evicted = idle.removeFirst();
+                    engines.remove(evicted);
+                    evictions++;
+                    break;
+                }
+                wait();
+            }
+        }
+        // Loading a model takes a while; other threads borrow and hand back meanwhile
+        if (evicted != null) {
+            evicted.close();
+        }
+        return create(language);
+    }
+    
+    // An idle engine for the language, or a new one while there is room;
+    // null when every engine is busy
+    public WarmTesseract borrowIfIdleOrNew(String language) throws TesseractException {
+        synchronized (this) {
+            WarmTesseract engine = takeIdle(language);
+            if (engine != null) {
+                return engine;
+            }
+            if (reserved >= capacity) {
+                return null;
+            }
+            reserved++;
+        }
+        return create(language);
+    }
+    
+    public synchronized void release(WarmTesseract engine) {
+        idle.addLast(engine);
+        notifyAll();
+    }
+    
+    private WarmTesseract takeIdle(String language) {
+        // Most recently used first, its memory is the most likely to be cached
+        Iterator<WarmTesseract> candidates = idle.descendingIterator();
+        while (candidates.hasNext()) {
+            WarmTesseract engine = candidates.next();
+            if (engine.getLanguage().equals(language)) {
+                candidates.remove();
+                return engine;
+            }
+        }
+        return null;
+    }
+    
+    private WarmTesseract create(String language) throws TesseractException {
+        try {
+            WarmTesseract engine = new WarmTesseract(tessdataPath, language, settings);
+            synchronized (this) {
+                engines.add(engine);
+            }
+            return engine;
+        } catch (TesseractException | RuntimeException | Error e) {
+            synchronized (this) {
+                reserved--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        Map<String, Integer> languages = new TreeMap<>();
+        for (WarmTesseract engine : engines) {
+            languages.merge(engine.getLanguage(), 1, Integer::sum);
+        }
+        return "Tesseract engines: " + languages + ", " + evictions + " closed for other languages";
+    }
+    
+    @Override
+    public synchronized void close() {
+        for (WarmTesseract engine : engines) {
+            engine.close();
+        }
+        engines.clear();
+        idle.clear();
+    }
+}
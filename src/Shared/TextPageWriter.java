@@ -0,0 +1,26 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Writes pages in the plain text format with "--- Page N (method) ---" headers
+// and flushes after every page so output appears while extraction continues.
+public class TextPageWriter implements PageSink {
+    
+    private final Writer out;
+    
+    public TextPageWriter(Writer out) {
+        this.out = out;
+    }
+    
+    @Override
+    public void pageExtracted(PageResult page) throws IOException {
+        out.write(formatPage(page));
+        out.flush();
+    }
+    
+    public static String formatPage(PageResult page) {
+        return "--- Page " + page.getPageNumber() + " (" + page.getMethod().getLabel() + ") ---\n"
+               + page.getText() + "\n\n";
+    }
+}
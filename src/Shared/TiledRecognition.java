@@ -0,0 +1,188 @@
+package pdftotext;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Cuts a page image too large for one Tesseract call, such as an A0 drawing
+// or a newspaper page, into a grid of overlapping tiles that are recognized
+// at the same time, and merges their words back into one page. Neighbouring
+// tiles overlap by an inch, so a word narrower than that is whole in at
+// least one of them. A word is only kept from the tile whose core (the tile
+// less half the overlap on each inner side) holds its centre, which drops
+// both the second copy and the cut-off halves along a seam. Tiles are read
+// column by column, so newspaper columns come out one after the other, and
+// lines that a seam cut in two are joined again.
+public class TiledRecognition {
+    
+    // About 8 inches at 300 DPI, so an A0 page makes two dozen tiles
+    private static final int TILE_PIXELS = 2400;
+    
+    private final int width;
+    private final int height;
+    private final int dpi;
+    private final int overlap;
+    private final int columns;
+    private final int rows;
+    private final int columnStep;
+    private final int rowStep;
+    
+    public TiledRecognition(int width, int height, int dpi) {
+        this.width = width;
+        this.height = height;
+        this.dpi = dpi;
+        this.overlap = Math.min(dpi, TILE_PIXELS / 2);
+        columns = count(width);
+        rows = count(height);
+        // Multiples of 8, so black and white tiles start on a byte
+        columnStep = roundUp8((width - overlap + columns - 1) / columns);
+        rowStep = roundUp8((height - overlap + rows - 1) / rows);
+    }
+    
+    private int count(int length) {
+        return Math.max(1, (length - overlap + TILE_PIXELS - overlap - 1) / (TILE_PIXELS - overlap));
+    }
+    
+    private static int roundUp8(int value) {
+        return (value + 7) & ~7;
+    }
+    
+    // Column by column, each from top to bottom
+    public List<Rectangle> getTiles() {
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int column = 0; column < columns; column++) {
+            for (int row = 0; row < rows; row++) {
+                int x = column * columnStep;
+                int y = row * rowStep;
+                int right = column == columns - 1 ? width : Math.min(x + columnStep + overlap, width);
+                int bottom = row == rows - 1 ? height : Math.min(y + rowStep + overlap, height);
+                tiles.add(new Rectangle(x, y, right - x, bottom - y));
+            }
+        }
+        return tiles;
+    }
+    
+    // tileWords holds the words of each tile, in the order of getTiles, with
+    // boxes in points on the whole page. Returns the page's words in reading
+    // order, numbered by line.
+    public List<WordBox> merge(List<List<WordBox>> tileWords) {
+        float scale = 72f / dpi;
+        List<Line> lines = new ArrayList<>();
+        for (int tile = 0; tile < tileWords.size(); tile++) {
+            int column = tile / rows;
+            int row = tile % rows;
+            float coreLeft = column == 0 ? Float.NEGATIVE_INFINITY : (column * columnStep + overlap / 2) * scale;
+            float coreRight = column == columns - 1 ? Float.POSITIVE_INFINITY
+                              : ((column + 1) * columnStep + overlap / 2) * scale;
+            float coreTop = row == 0 ? Float.NEGATIVE_INFINITY : (row * rowStep + overlap / 2) * scale;
+            float coreBottom = row == rows - 1 ? Float.POSITIVE_INFINITY : ((row + 1) * rowStep + overlap / 2) * scale;
+            
+            List<WordBox> kept = new ArrayList<>();
+            for (WordBox word : tileWords.get(tile)) {
+                float x = (word.getLeft() + word.getRight()) / 2;
+                float y = (word.getTop() + word.getBottom()) / 2;
+                if (x >= coreLeft && x < coreRight && y >= coreTop && y < coreBottom) {
+                    kept.add(word);
+                }
+            }
+            for (List<WordBox> words : WordBox.groupLines(kept)) {
+                Line piece = new Line(column, row, words);
+                Line continued = findContinued(lines, piece);
+                if (continued != null) {
+                    continued.join(piece);
+                } else {
+                    lines.add(piece);
+                }
+            }
+        }
+        
+        List<WordBox> merged = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            for (WordBox word : lines.get(i).words) {
+                merged.add(new WordBox(word.getText(), word.getLeft(), word.getTop(), word.getRight(),
+                                       word.getBottom(), word.getConfidence(), i));
+            }
+        }
+        return merged;
+    }
+    
+    // The line in the tile to the left or above that piece carries on: on the
+    // same height, and no further from it than a line is high
+    private static Line findContinued(List<Line> lines, Line piece) {
+        for (Line line : lines) {
+            boolean neighbour = (line.column == piece.column - 1 && line.row == piece.row)
+                                || (line.column == piece.column && line.row == piece.row - 1);
+            if (!neighbour) {
+                continue;
+            }
+            float lineHeight = Math.max(line.bottom - line.top, piece.bottom - piece.top);
+            float verticalOverlap = Math.min(line.bottom, piece.bottom) - Math.max(line.top, piece.top);
+            float gap = Math.max(line.left, piece.left) - Math.min(line.right, piece.right);
+            if (verticalOverlap >= Math.min(line.bottom - line.top, piece.bottom - piece.top) / 2
+                && gap <= lineHeight) {
+                return line;
+            }
+        }
+        return null;
+    }
+    
+    // Lines of words as Tesseract prints them, with an empty line where the
+    // next line does not follow closely below the last
+    public static String toText(List<WordBox> words) {
+        StringBuilder text = new StringBuilder();
+        WordBox previous = null;
+        for (List<WordBox> line : WordBox.groupLines(words)) {
+            WordBox first = line.get(0);
+            if (previous != null) {
+                float lineHeight = previous.getBottom() - previous.getTop();
+                boolean follows = first.getTop() >= previous.getTop() && first.getTop() - previous.getBottom() <= lineHeight;
+                text.append(follows ? "\n" : "\n\n");
+            }
+            for (int i = 0; i < line.size(); i++) {
+                if (i > 0) {
+                    text.append(' ');
+                }
+                text.append(line.get(i).getText());
+            }
+            previous = first;
+        }
+        return text.length() == 0 ? "" : text.append('\n').toString();
+    }
+    
+    // A line of one tile, and the pieces of it from the tiles after
+    private static class Line {
+        // The tile of the last piece, where the line may go on from
+        private int column;
+        private int row;
+        private final List<WordBox> words;
+        private float left = Float.POSITIVE_INFINITY;
+        private float top = Float.POSITIVE_INFINITY;
+        private float right = Float.NEGATIVE_INFINITY;
+        private float bottom = Float.NEGATIVE_INFINITY;
+        
+        Line(int column, int row, List<WordBox> words) {
+            this.column = column;
+            this.row = row;
+            this.words = new ArrayList<>(words);
+            include(words);
+        }
+        
+        void join(Line piece) {
+            words.addAll(piece.words);
+            words.sort(Comparator.comparingDouble(WordBox::getLeft));
+            include(piece.words);
+            column = piece.column;
+            row = piece.row;
+        }
+        
+        private void include(List<WordBox> added) {
+            for (WordBox word : added) {
+                left = Math.min(left, word.getLeft());
+                top = Math.min(top, word.getTop());
+                right = Math.max(right, word.getRight());
+                bottom = Math.max(bottom, word.getBottom());
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package pdftotext;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.TesseractException;
+
+// A Tesseract engine that stays initialized between pages. Tess4J's Tesseract
+// class creates a native engine and loads the traineddata again on every
+// doOCR call; this keeps one TessBaseAPI handle alive and only swaps the image.
+// Like Tesseract itself, an instance must only be used by one thread at a time.
+public class WarmTesseract implements AutoCloseable {
+    
+    // Tesseract's language name for orientation and script detection
+    public static final String OSD = "osd";
+    // Page segmentation mode that only detects orientation and script
+    private static final int PSM_OSD_ONLY = 0;
+    // The detection model is a legacy one, which the LSTM-only mode cannot load
+    private static final int OEM_DEFAULT = 3;
+    
+    private final TessBaseAPI handle;
+    private final String language;
+    // Reused between pages; direct buffers are only freed when the GC gets
+    // around to them, so allocating one per page lets native memory pile up
+    private ByteBuffer buffer;
+    // Reused the same way, for images that are not gray or black and white
+    private BufferedImage grayImage;
+    
+    public WarmTesseract(String datapath, OcrSettings settings) throws TesseractException {
+        this(datapath, settings.getLanguage(), settings);
+    }
+    
+    // An engine for language, such as deu or eng+fra, or OSD for an engine
+    // that only runs detectOrientationScript
+    public WarmTesseract(String datapath, String language, OcrSettings settings) throws TesseractException {
+        this.language = language;
+        boolean osd = language.equals(OSD);
+        handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit2(handle, datapath, language, osd ? OEM_DEFAULT : settings.getOcrEngineMode()) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new TesseractException("Could not initialize Tesseract for language " + language + " from " + datapath);
+        }
+        TessAPI1.TessBaseAPISetPageSegMode(handle, osd ? PSM_OSD_ONLY : settings.getPageSegMode());
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public String doOCR(BufferedImage image, int dpi) throws TesseractException {
+        return doOCR(image, dpi, null);
+    }
+    
+    // Also adds every recognized word to words, unless it is null
+    public String doOCR(BufferedImage image, int dpi, List<WordBox> words) throws TesseractException {
+        return doOCR(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()), dpi, words);
+    }
+    
+    // Recognizes one region of the image, such as a tile of a very large
+    // page. Word boxes are still relative to the whole image. For black and
+    // white images the region must start at a multiple of 8 pixels.
+    public String doOCR(BufferedImage image, Rectangle region, int dpi, List<WordBox> words) throws TesseractException {
+        try {
+            setImage(image, region, dpi);
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            if (text == null) {
+                throw new TesseractException("Tesseract returned no text");
+            }
+            try {
+                if (words != null) {
+                    collectWords(words, 72f / dpi, region.x, region.y);
+                }
+                return text.getString(0, "UTF-8");
+            } finally {
+                TessAPI1.TessDeleteText(text);
+            }
+        } finally {
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+    }
+    
+    // Which way up the page is and what script it is written in, or null
+    // when there is too little text to tell. Only for OSD engines.
+    public OrientationScript detectOrientationScript(BufferedImage image, int dpi) {
+        IntBuffer orientation = IntBuffer.allocate(1);
+        FloatBuffer orientationConfidence = FloatBuffer.allocate(1);
+        PointerByReference script = new PointerByReference();
+        FloatBuffer scriptConfidence = FloatBuffer.allocate(1);
+        try {
+            setImage(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()), dpi);
+            if (TessAPI1.TessBaseAPIDetectOrientationScript(handle, orientation, orientationConfidence, script,
+                                                            scriptConfidence) == 0) {
+                return null;
+            }
+            // The script name is Tesseract's own constant, not to be freed
+            String scriptName = script.getValue() == null ? null : script.getValue().getString(0);
+            return new OrientationScript(orientation.get(0), orientationConfidence.get(0), scriptName,
+                                         scriptConfidence.get(0));
+        } finally {
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+    }
+    
+    private void setImage(BufferedImage image, Rectangle region, int dpi) {
+        // Black and white images go in as they are, one bit per pixel;
+        // everything else as 8-bit gray, which loses nothing since Tesseract
+        // binarizes internally
+        boolean binary = isPlainBinary(image);
+        BufferedImage pixelsImage = binary ? image : toGray(image);
+        byte[] pixels = ((DataBufferByte) pixelsImage.getRaster().getDataBuffer()).getData();
+        int imageLine = binary ? (image.getWidth() + 7) / 8 : image.getWidth();
+        int regionLine = binary ? (region.width + 7) / 8 : region.width;
+        int firstByte = binary ? region.x / 8 : region.x;
+        if (buffer == null || buffer.capacity() < regionLine * region.height) {
+            buffer = ByteBuffer.allocateDirect(regionLine * region.height);
+        }
+        // The one copy into native memory; SetImage copies the pixels into
+        // Tesseract's own image anyway, so the buffer is free again after it
+        buffer.clear();
+        if (regionLine == imageLine) {
+            buffer.put(pixels, region.y * imageLine, regionLine * region.height);
+        } else {
+            for (int y = region.y; y < region.y + region.height; y++) {
+                buffer.put(pixels, y * imageLine + firstByte, regionLine);
+            }
+        }
+        buffer.flip();
+        
+        // Tesseract takes 0 bytes per pixel to mean packed 1-bit rows
+        TessAPI1.TessBaseAPISetImage(handle, buffer, region.width, region.height, binary ? 0 : 1, regionLine);
+        TessAPI1.TessBaseAPISetSourceResolution(handle, dpi);
+    }
+    
+    // Walks the words of the last recognition; scale turns pixels into points,
+    // after moving them by the position of the recognized region
+    private void collectWords(List<WordBox> words, float scale, int offsetX, int offsetY) {
+        TessResultIterator iterator = TessAPI1.TessBaseAPIGetIterator(handle);
+        if (iterator == null) {
+            return;
+        }
+        try {
+            TessPageIterator pageIterator = TessAPI1.TessResultIteratorGetPageIterator(iterator);
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+            int word = TessPageIteratorLevel.RIL_WORD;
+            int line = -1;
+            do {
+                if (line < 0 || TessAPI1.TessPageIteratorIsAtBeginningOf(pageIterator, TessPageIteratorLevel.RIL_TEXTLINE) != 0) {
+                    line++;
+                }
+                Pointer wordText = TessAPI1.TessResultIteratorGetUTF8Text(iterator, word);
+                if (wordText == null) {
+                    continue;
+                }
+                String text;
+                try {
+                    text = wordText.getString(0, "UTF-8");
+                } finally {
+                    TessAPI1.TessDeleteText(wordText);
+                }
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                float confidence = TessAPI1.TessResultIteratorConfidence(iterator, word);
+                TessAPI1.TessPageIteratorBoundingBox(pageIterator, word, left, top, right, bottom);
+                words.add(new WordBox(text.trim(), (offsetX + left.get(0)) * scale, (offsetY + top.get(0)) * scale,
+                                      (offsetX + right.get(0)) * scale, (offsetY + bottom.get(0)) * scale,
+                                      confidence, line));
+            } while (TessAPI1.TessResultIteratorNext(iterator, word) != 0);
+        } finally {
+            TessAPI1.TessResultIteratorDelete(iterator);
+        }
+    }
+    
+    // Whether doOCR can read the image's pixels as they are, without first
+    // drawing it into a gray copy
+    static boolean isDirectlyReadable(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_GRAY || isPlainBinary(image);
+    }
+    
+    // A 1-bit image packed the way Tesseract expects: first pixel in the high
+    // bit and 1 for white, which is Java's default black and white palette
+    private static boolean isPlainBinary(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_BINARY
+               && image.getColorModel().getPixelSize() == 1
+               && image.getColorModel().getRGB(0) == 0xFF000000
+               && image.getColorModel().getRGB(1) == 0xFFFFFFFF;
+    }
+    
+    private BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        if (grayImage == null || grayImage.getWidth() != image.getWidth() || grayImage.getHeight() != image.getHeight()) {
+            grayImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        }
+        drawGray(image, grayImage);
+        return grayImage;
+    }
+    
+    // A gray copy of its own, for images that several engines read at once
+    static BufferedImage grayCopy(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        drawGray(image, gray);
+        return gray;
+    }
+    
+    private static void drawGray(BufferedImage image, BufferedImage gray) {
+        Graphics2D g = gray.createGraphics();
+        try {
+            // Transparent areas become white paper rather than black
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+    }
+    
+    @Override
+    public void close() {
+        TessAPI1.TessBaseAPIEnd(handle);
+        TessAPI1.TessBaseAPIDelete(handle);
+    }
+}
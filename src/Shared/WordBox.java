@@ -0,0 +1,77 @@
+package pdftotext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One word and where it is on the page, in points from the top left corner
+// of the page as displayed. Words from the text layer have no confidence.
+public class WordBox {
+    
+    public static final float NO_CONFIDENCE = -1;
+    
+    private final String text;
+    private final float left;
+    private final float top;
+    private final float right;
+    private final float bottom;
+    private final float confidence;
+    private final int line;
+    
+    public WordBox(String text, float left, float top, float right, float bottom, float confidence, int line) {
+        this.text = text;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.confidence = confidence;
+        this.line = line;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public float getLeft() {
+        return left;
+    }
+    
+    public float getTop() {
+        return top;
+    }
+    
+    public float getRight() {
+        return right;
+    }
+    
+    public float getBottom() {
+        return bottom;
+    }
+    
+    // 0 to 100 as reported by Tesseract, or NO_CONFIDENCE
+    public float getConfidence() {
+        return confidence;
+    }
+    
+    public boolean hasConfidence() {
+        return confidence >= 0;
+    }
+    
+    // Index of the line on the page the word belongs to, counted from 0
+    public int getLine() {
+        return line;
+    }
+    
+    // Splits words into runs that share a line number
+    public static List<List<WordBox>> groupLines(List<WordBox> words) {
+        List<List<WordBox>> lines = new ArrayList<>();
+        List<WordBox> current = null;
+        for (WordBox word : words) {
+            if (current == null || current.get(0).getLine() != word.getLine()) {
+                current = new ArrayList<>();
+                lines.add(current);
+            }
+            current.add(word);
+        }
+        return lines;
+    }
+}
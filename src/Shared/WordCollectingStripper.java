@@ -0,0 +1,70 @@
+package pdftotext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+// A PDFTextStripper that also records the bounding box of every word it
+// writes. PDFTextStripper hands each word to writeString together with the
+// positions of its glyphs, so the boxes come for free with the text.
+public class WordCollectingStripper extends PDFTextStripper {
+    
+    private final boolean collectWords;
+    private List<WordBox> words = new ArrayList<>();
+    private int line;
+    
+    // With collectWords false this is an ordinary PDFTextStripper
+    public WordCollectingStripper(boolean collectWords) throws IOException {
+        this.collectWords = collectWords;
+    }
+    
+    // The words of the pages stripped since the last call, or null when
+    // words are not collected
+    public List<WordBox> takeWords() {
+        if (!collectWords) {
+            return null;
+        }
+        List<WordBox> taken = words;
+        words = new ArrayList<>();
+        return taken;
+    }
+    
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        super.startPage(page);
+        // Anything left from a page that failed half way is dropped
+        words.clear();
+        line = 0;
+    }
+    
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+        super.writeString(text, textPositions);
+        if (!collectWords || textPositions.isEmpty() || text.trim().isEmpty()) {
+            return;
+        }
+        
+        // DirAdj coordinates are already turned for the page rotation and
+        // measured from the top, with y on the baseline
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (TextPosition position : textPositions) {
+            left = Math.min(left, position.getXDirAdj());
+            right = Math.max(right, position.getXDirAdj() + position.getWidthDirAdj());
+            top = Math.min(top, position.getYDirAdj() - position.getHeightDir());
+            bottom = Math.max(bottom, position.getYDirAdj());
+        }
+        words.add(new WordBox(text.trim(), left, top, right, bottom, WordBox.NO_CONFIDENCE, line));
+    }
+    
+    @Override
+    protected void writeLineSeparator() throws IOException {
+        super.writeLineSeparator();
+        line++;
+    }
+}